@@ -0,0 +1,61 @@
+package org.example;
+
+import org.apache.commons.io.output.NullPrintStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Tokenizing one yearly transaction file and reading a whole account folder
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+    @Param({"1", "5"})
+    public int years;
+
+    @Param({"12", "250"})
+    public int lotsPerYear;
+
+    @Param({"1", "4"})
+    public int tickers;
+
+    private Path folder;
+    private ByteBuffer lastYearFile;
+    private FidelityParser parser;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = SyntheticAccount.write(years, lotsPerYear, tickers);
+        lastYearFile = ByteBuffer.wrap(Files.readAllBytes(folder.resolve("Transaction history " + SyntheticAccount.LAST_YEAR + ".csv")));
+        parser = new FidelityParser(SyntheticAccount.LAST_YEAR, NullPrintStream.INSTANCE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticAccount.delete(folder);
+    }
+
+    @Benchmark
+    public EventStore parseFile() {
+        EventStore.Builder events = new EventStore.Builder();
+        TransactionHistoryReader.parse(lastYearFile.duplicate(), SyntheticAccount.LAST_YEAR, events);
+        return events.build(false);
+    }
+
+    // Every event up to the FY end, in date order
+    @Benchmark
+    public double readAllEvents() throws IOException {
+        EventCursor events = parser.openEvents(folder, Integer.MIN_VALUE);
+        double amounts = 0;
+        while (events.next())
+            amounts += events.getAmount();
+        return amounts;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example;
+
+import org.apache.commons.io.output.NullPrintStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// A full run: reading the account folder, replaying every event into lots and printing the reports
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+    @Param({"1", "5"})
+    public int years;
+
+    @Param({"12", "250"})
+    public int lotsPerYear;
+
+    @Param({"1", "4"})
+    public int tickers;
+
+    private Path folder;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = SyntheticAccount.write(years, lotsPerYear, tickers);
+        out = NullPrintStream.INSTANCE;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticAccount.delete(folder);
+    }
+
+    @Benchmark
+    public int run() throws IOException {
+        FidelityParser parser = new FidelityParser(SyntheticAccount.LAST_YEAR, out);
+        parser.run(folder);
+        return parser.getEventCount();
+    }
+}
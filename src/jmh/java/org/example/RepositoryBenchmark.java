@@ -0,0 +1,106 @@
+package org.example;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.example.repositories.CostInflationRepository;
+import org.example.repositories.CurrencyConverterFactory;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+import org.example.repositories.StockPriceRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.dtos.Currency.INR;
+import static org.example.dtos.Currency.USD;
+
+// Reference data lookups over a batch of random dates, one lot's worth of lookups per date
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    // Years of reference data the dates are drawn from, ending with 2024
+    @Param({"1", "5"})
+    public int years;
+
+    @Param({"100", "1000"})
+    public int lots;
+
+    // Price series the lots are spread over round-robin, MSFT and synthetic copies of it
+    @Param({"1", "4"})
+    public int tickers;
+
+    private Path referenceData;
+    private String[] lotTickers;
+    private LocalDate[] dates;
+    private LocalDate[] peakEndDates;
+    private CurrencyConverter converter;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (tickers > 1) {
+            referenceData = Files.createTempDirectory("itr-benchmark");
+            SyntheticAccount.writeReferenceData(referenceData, tickers);
+        }
+        converter = CurrencyConverterFactory.build(USD, INR);
+        for (int ticker = 0; ticker < tickers; ticker++)
+            StockPriceRepository.preload(SyntheticAccount.getTicker(ticker));
+        Random random = new Random(lots);
+        LocalDate first = LocalDate.of(SyntheticAccount.LAST_YEAR - years + 1, 1, 10);
+        int span = (int) (LocalDate.of(SyntheticAccount.LAST_YEAR, 12, 31).toEpochDay() - first.toEpochDay());
+        lotTickers = new String[lots];
+        dates = new LocalDate[lots];
+        peakEndDates = new LocalDate[lots];
+        for (int i = 0; i < lots; i++) {
+            lotTickers[i] = SyntheticAccount.getTicker(i % tickers);
+            dates[i] = SyntheticAccount.tradingDay(converter, first.plusDays(random.nextInt(span)), true);
+            peakEndDates[i] = dates[i].plusDays(1 + random.nextInt(365));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (referenceData != null)
+            SyntheticAccount.delete(referenceData);
+    }
+
+    @Benchmark
+    public void getStockPrice(Blackhole blackhole) {
+        for (int i = 0; i < dates.length; i++)
+            blackhole.consume(StockPriceRepository.getStockPrice(lotTickers[i], dates[i]));
+    }
+
+    @Benchmark
+    public void getPeakStockPrice(Blackhole blackhole) {
+        for (int i = 0; i < dates.length; i++) {
+            // getStockPrice resolves dates[i], so the window holds a close at most FALLBACK_DAYS before it
+            Pair<LocalDate, Double> peak = StockPriceRepository.getPeakStockPrice(lotTickers[i], dates[i].minusDays(StockPriceRepository.FALLBACK_DAYS), peakEndDates[i]);
+            blackhole.consume(peak);
+        }
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        for (LocalDate date : dates)
+            blackhole.consume(converter.convert(date, 100));
+    }
+
+    @Benchmark
+    public void convertIncome(Blackhole blackhole) {
+        for (LocalDate date : dates)
+            blackhole.consume(converter.convertIncome(date, 100));
+    }
+
+    @Benchmark
+    public void getCostInflation(Blackhole blackhole) {
+        for (LocalDate date : dates)
+            blackhole.consume(CostInflationRepository.getCostInflation(date.getYear()));
+    }
+}
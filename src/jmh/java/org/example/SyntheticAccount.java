@@ -0,0 +1,164 @@
+package org.example;
+
+import org.example.repositories.CurrencyConverterFactory;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+import org.example.repositories.ReferenceData;
+import org.example.repositories.StockPriceRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.example.FidelityParser.MSFT;
+import static org.example.dtos.Currency.INR;
+import static org.example.dtos.Currency.USD;
+
+// Writes Fidelity-style "Transaction history <year>.csv" files for benchmarks: lotsPerYear RSU deposits per year
+// spread round-robin over the tickers, two ESPP purchases of MSFT, and per ticker quarterly dividends with
+// withholding tax and quarterly sales of a tenth of the holdings. Tickers after MSFT are synthetic investments with
+// MSFT's prices, mapped and priced through a reference data override folder inside the account folder, which must
+// be written before the ticker mapping is first read in the JVM.
+final class SyntheticAccount {
+    static final int LAST_YEAR = 2024;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("MMM-dd-yyyy", Locale.ENGLISH);
+
+    private SyntheticAccount() {
+    }
+
+    static Path write(int years, int lotsPerYear, int tickers) throws IOException {
+        Path folder = Files.createTempDirectory("itr-benchmark");
+        if (tickers > 1)
+            writeReferenceData(folder.resolve("reference-data"), tickers);
+        CurrencyConverter converter = CurrencyConverterFactory.build(USD, INR);
+        Random random = new Random(years * 31L + lotsPerYear);
+        double[] shares = new double[tickers];
+        for (int year = LAST_YEAR - years + 1; year <= LAST_YEAR + 1; year++) {
+            List<Row> rows = new ArrayList<>();
+            // Shares acquired in the year, added to the holdings once the dividends and sales reach their dates
+            List<Row> acquired = new ArrayList<>();
+            int lastMonth = year == LAST_YEAR + 1 ? 3 : 12;
+            for (int i = 0; i < lotsPerYear; i++) {
+                LocalDate date = tradingDay(converter, LocalDate.of(year, 1 + i * lastMonth / lotsPerYear, 1 + random.nextInt(25)), false);
+                double deposited = 1 + random.nextInt(20000) / 1000.0;
+                acquired.add(row(date, "CONVERSION SHARES DEPOSITED", i % tickers, deposited, 0));
+            }
+            for (int month = 3; month <= lastMonth; month += 6) {
+                LocalDate bought = tradingDay(converter, LocalDate.of(year, month, 28), false);
+                double amount = 1000 + random.nextInt(100000) / 100.0;
+                double bought$ = amount / StockPriceRepository.getStockPrice(MSFT, bought);
+                acquired.add(row(bought, "YOU BOUGHT ESPP### AS OF " + bought, 0, bought$, amount));
+                rows.add(row(tradingDay(converter, bought.plusDays(20), false), "JOURNALED SPP PURCHASE CREDIT", 0, 0, amount));
+            }
+            rows.addAll(acquired);
+            acquired.sort(Comparator.comparing((Row row) -> row.date));
+            int held = 0;
+            for (int month = 2; month <= lastMonth; month += 3) {
+                LocalDate paid = tradingDay(converter, LocalDate.of(year, month, 14), true);
+                LocalDate sold = tradingDay(converter, LocalDate.of(year, month, 20), true);
+                for (; held < acquired.size() && acquired.get(held).date.isBefore(paid); held++)
+                    shares[acquired.get(held).ticker] += acquired.get(held).shares;
+                for (int ticker = 0; ticker < tickers; ticker++) {
+                    // A ticker whose first deposit is still to come has nothing to pay or sell
+                    if (shares[ticker] == 0)
+                        continue;
+                    double dividend = Math.round(shares[ticker] * 68) / 100.0;
+                    rows.add(row(paid, "DIVIDEND RECEIVED", ticker, 0, dividend));
+                    rows.add(row(paid, "NON-RESIDENT TAX DIVIDEND RECEIVED", ticker, 0, -Math.round(dividend * 25) / 100.0));
+
+                    double soldShares = Math.floor(shares[ticker] * 100) / 1000.0;
+                    shares[ticker] -= soldShares;
+                    rows.add(row(sold, "YOU SOLD EXERCISE", ticker, -soldShares, soldShares * StockPriceRepository.getStockPrice(MSFT, sold)));
+                }
+            }
+            for (; held < acquired.size(); held++)
+                shares[acquired.get(held).ticker] += acquired.get(held).shares;
+            // Fidelity lists the newest transactions first
+            rows.sort(Comparator.comparing((Row row) -> row.date).reversed());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(folder.resolve("Transaction history " + year + ".csv"), StandardCharsets.UTF_8))) {
+                writer.print('\uFEFF');
+                writer.println("Transaction date,Transaction type,Investment name,Shares,Amount");
+                rows.forEach(row -> writer.println(row.text));
+                writer.println();
+                writer.println("The data and information in this spreadsheet is provided for informational purposes only.");
+            }
+        }
+        return folder;
+    }
+
+    // Maps and prices the synthetic tickers, and points the reference data override folder at them
+    static void writeReferenceData(Path referenceData, int tickers) throws IOException {
+        Path stockPrices = Files.createDirectories(referenceData.resolve("stock_prices"));
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(referenceData.resolve("tickers.csv"), StandardCharsets.UTF_8))) {
+            writer.println("MICROSOFT CORP," + MSFT);
+            for (int ticker = 1; ticker < tickers; ticker++) {
+                writer.println(getInvestmentName(ticker) + "," + getTicker(ticker));
+                try (InputStream in = SyntheticAccount.class.getResourceAsStream("/stock_prices/" + MSFT + ".tsv")) {
+                    Files.copy(in, stockPrices.resolve(getTicker(ticker) + ".tsv"));
+                }
+            }
+        }
+        System.setProperty(ReferenceData.OVERRIDE_FOLDER_PROPERTY, referenceData.toString());
+    }
+
+    private static String getInvestmentName(int ticker) {
+        return ticker == 0 ? "MICROSOFT CORP" : "SYNTHETIC CORP " + ticker;
+    }
+
+    static String getTicker(int ticker) {
+        return ticker == 0 ? MSFT : "SYN" + ticker;
+    }
+
+    static void delete(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Collections.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // First day on or after date with a close and a conversion rate, and an income conversion rate if income is set.
+    // The TTBR data has gaps at some month ends, which rules out income on every day of the following month.
+    static LocalDate tradingDay(CurrencyConverter converter, LocalDate date, boolean income) {
+        for (int i = 0; i < 120; i++, date = date.plusDays(1)) {
+            try {
+                StockPriceRepository.getStockPrice(MSFT, date);
+                converter.convert(date, 1);
+                if (income)
+                    converter.convertIncome(date, 1);
+                return date;
+            } catch (RuntimeException e) {
+                // No close or rate within the fallback window, try the next day
+            }
+        }
+        throw new IllegalStateException("No trading day near " + date);
+    }
+
+    private static Row row(LocalDate date, String type, int ticker, double shares, double amount) {
+        return new Row(date, ticker, shares, String.format(Locale.ROOT, "%s,%s,%s,%s,%s$%.2f", date.format(DATE), type, getInvestmentName(ticker),
+                shares == 0 ? "-" : String.format(Locale.ROOT, "%.3f", shares), amount < 0 ? "-" : "", Math.abs(amount)));
+    }
+
+    private static final class Row {
+        private final LocalDate date;
+        private final int ticker;
+        private final double shares;
+        private final String text;
+
+        private Row(LocalDate date, int ticker, double shares, String text) {
+            this.date = date;
+            this.ticker = ticker;
+            this.shares = shares;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import lombok.AllArgsConstructor;
+import org.example.repositories.CostInflationRepository;
+import org.example.repositories.CurrencyConverterFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.example.dtos.Currency.INR;
+import static org.example.dtos.Currency.USD;
+
+// Runs FidelityParser for every account folder under a directory on a bounded pool of workers, writing a text
+// report and an ITR utility JSON file per account.
+// Reference data is loaded once up front and shared read-only by all workers. Stock prices are loaded per ticker
+// on first use and kept in the bounded price cache.
+public class BatchRunner {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: BatchRunner <Folder-Containing-Account-Folders> <Accounting Year> [Threads]");
+            return;
+        }
+        Path batchFolder = Paths.get(args[0]);
+        int calendarYear = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Path reportFolder = batchFolder.resolve("reports");
+        Files.createDirectories(reportFolder);
+        List<Path> accounts;
+        try (Stream<Path> stream = Files.list(batchFolder)) {
+            accounts = stream.filter(Files::isDirectory).filter(path -> !path.equals(reportFolder)).sorted().collect(Collectors.toList());
+        }
+
+        long start = System.nanoTime();
+        loadReferenceData(calendarYear);
+        long loaded = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<AccountResult>> futures = new ArrayList<>();
+        try {
+            for (Path account : accounts) {
+                futures.add(executor.submit(() -> runAccount(account, calendarYear, reportFolder)));
+            }
+            List<AccountResult> results = new ArrayList<>();
+            for (Future<AccountResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Batch worker failed", e.getCause());
+                }
+            }
+            printSummary(results, threads, loaded - start, System.nanoTime() - loaded);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void loadReferenceData(int calendarYear) {
+        CurrencyConverterFactory.build(USD, INR);
+        CostInflationRepository.getCostInflation(calendarYear);
+    }
+
+    private static AccountResult runAccount(Path account, int calendarYear, Path reportFolder) throws IOException {
+        String name = account.getFileName().toString();
+        Path report = reportFolder.resolve(String.format("%s-%d.txt", name, calendarYear));
+        long start = System.nanoTime();
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(report)), false, "UTF-8")) {
+            FidelityParser parser = new FidelityParser(calendarYear, out);
+            parser.setItrJsonFile(reportFolder.resolve(String.format("%s-%d.json", name, calendarYear)));
+            try {
+                parser.run(account);
+                return new AccountResult(name, null, parser.getEventCount(), System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                out.println("Failed : " + e);
+                return new AccountResult(name, e, parser.getEventCount(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static void printSummary(List<AccountResult> results, int threads, long loadNanos, long runNanos) {
+        System.out.println("------------------------------- Batch Summary ---------------------------------------");
+        System.out.println("Account,Status,Events,Time(ms)");
+        long events = 0;
+        int failed = 0;
+        for (AccountResult result : results) {
+            events += result.events;
+            if (result.error != null)
+                failed++;
+            System.out.printf("%s,%s,%d,%.1f%n", result.name, result.error == null ? "OK" : "FAILED: " + result.error.getMessage(),
+                    result.events, result.nanos / 1e6);
+        }
+        double seconds = runNanos / 1e9;
+        System.out.printf("Accounts = %d, Failed = %d, Threads = %d%n", results.size(), failed, threads);
+        System.out.printf("Reference data load = %.1f ms, Run = %.1f ms%n", loadNanos / 1e6, runNanos / 1e6);
+        System.out.printf("Throughput = %.1f accounts/s, %.0f events/s%n", results.size() / seconds, events / seconds);
+    }
+
+    @AllArgsConstructor
+    private static class AccountResult {
+        private final String name;
+        private final RuntimeException error;
+        private final int events;
+        private final long nanos;
+    }
+}
@@ -1,32 +0,0 @@
-package org.example;
-
-import java.util.Spliterator;
-import java.util.function.BiConsumer;
-import java.util.stream.Stream;
-
-public class CustomForEach {
-
-    public static <T> void forEach(Stream<T> stream, BiConsumer<T, Breaker> consumer) {
-        Spliterator<T> spliterator = stream.spliterator();
-        boolean hadNext = true;
-        Breaker breaker = new Breaker();
-
-        while (hadNext && !breaker.get()) {
-            hadNext = spliterator.tryAdvance(elem -> {
-                consumer.accept(elem, breaker);
-            });
-        }
-    }
-
-    public static class Breaker {
-        private boolean shouldBreak = false;
-
-        public void stop() {
-            shouldBreak = true;
-        }
-
-        boolean get() {
-            return shouldBreak;
-        }
-    }
-}
\ No newline at end of file
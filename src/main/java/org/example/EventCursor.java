@@ -0,0 +1,35 @@
+package org.example;
+
+import org.example.dtos.Event;
+import org.example.dtos.EventType;
+
+import java.time.LocalDate;
+
+// Walks events in date order, over an EventStore or straight off the transaction files. Implementations build the
+// date once per distinct day, so moving through the events allocates nothing else.
+interface EventCursor {
+    // Moves to the next event, false when there are no more
+    boolean next();
+
+    // Position of the current event among the events of the cursor
+    int getPosition();
+
+    int getEpochDay();
+
+    LocalDate getDate();
+
+    EventType getType();
+
+    double getAmount();
+
+    double getShares();
+
+    // Year of the file the event was read from
+    int getYear();
+
+    String getTicker();
+
+    default Event toEvent() {
+        return new Event(getDate(), getType(), getAmount(), getShares(), getYear(), getTicker());
+    }
+}
@@ -0,0 +1,345 @@
+package org.example;
+
+import org.example.dtos.Event;
+import org.example.dtos.EventType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.*;
+
+// Events held column-wise instead of as one object each: epoch day, type, amount, shares, file year and ticker,
+// the ticker as a position in a small table of the distinct tickers. Stores are immutable once built. On the heap
+// the columns are primitive arrays; with -Ditrhelper.offHeapEvents=true they are regions of one direct buffer,
+// so the events kept by a long running watch are not traced by the GC. Read them with an EventCursor.
+abstract class EventStore {
+    static final String OFF_HEAP_PROPERTY = "itrhelper.offHeapEvents";
+    static final boolean OFF_HEAP = Boolean.getBoolean(OFF_HEAP_PROPERTY);
+    private static final EventType[] TYPES = EventType.values();
+
+    private final String[] tickers;
+
+    private EventStore(String[] tickers) {
+        this.tickers = tickers;
+    }
+
+    abstract int size();
+
+    abstract int getEpochDay(int i);
+
+    abstract int getYear(int i);
+
+    abstract double getAmount(int i);
+
+    abstract double getShares(int i);
+
+    abstract int getTypeOrdinal(int i);
+
+    // Position in the ticker table, -1 when the investment has no ticker
+    abstract int getTickerIndex(int i);
+
+    EventType getType(int i) {
+        return TYPES[getTypeOrdinal(i)];
+    }
+
+    String getTicker(int i) {
+        int ticker = getTickerIndex(i);
+        return ticker < 0 ? null : tickers[ticker];
+    }
+
+    Event getEvent(int i) {
+        return new Event(LocalDate.ofEpochDay(getEpochDay(i)), getType(i), getAmount(i), getShares(i), getYear(i), getTicker(i));
+    }
+
+    List<Event> toEvents() {
+        List<Event> events = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++)
+            events.add(getEvent(i));
+        return events;
+    }
+
+    // Starts before the event at position from
+    EventCursor cursor(int from) {
+        return new StoreCursor(this, from);
+    }
+
+    static EventStore of(List<Event> events) {
+        Builder builder = new Builder(events.size());
+        for (Event event : events)
+            builder.add((int) event.getDate().toEpochDay(), event.getType(), event.getAmount(), event.getShares(), event.getYear(), event.getTicker());
+        return builder.build(OFF_HEAP);
+    }
+
+    // Appends events and builds a store of them. The heap store takes over the columns, so a builder is used once.
+    static final class Builder {
+        private int[] epochDays;
+        private int[] years;
+        private double[] amounts;
+        private double[] shares;
+        private short[] tickerIndexes;
+        private byte[] types;
+        private int size;
+        private final List<String> tickers = new ArrayList<>();
+        private final Map<String, Short> tickerPositions = new HashMap<>();
+
+        Builder() {
+            this(64);
+        }
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            epochDays = new int[capacity];
+            years = new int[capacity];
+            amounts = new double[capacity];
+            shares = new double[capacity];
+            tickerIndexes = new short[capacity];
+            types = new byte[capacity];
+        }
+
+        void add(int epochDay, EventType type, double amount, double numShares, int year, String ticker) {
+            if (size == epochDays.length)
+                ensureCapacity(size * 2);
+            epochDays[size] = epochDay;
+            years[size] = year;
+            amounts[size] = amount;
+            shares[size] = numShares;
+            tickerIndexes[size] = ticker == null ? -1 : getTickerIndex(ticker);
+            types[size] = (byte) type.ordinal();
+            size++;
+        }
+
+        // Avoids growing the columns one doubling at a time when the number of events is known
+        void ensureCapacity(int capacity) {
+            if (capacity <= epochDays.length)
+                return;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            years = Arrays.copyOf(years, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            shares = Arrays.copyOf(shares, capacity);
+            tickerIndexes = Arrays.copyOf(tickerIndexes, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+
+        int size() {
+            return size;
+        }
+
+        private short getTickerIndex(String ticker) {
+            Short position = tickerPositions.get(ticker);
+            if (position != null)
+                return position;
+            if (tickers.size() > Short.MAX_VALUE)
+                throw new IllegalStateException("Too many tickers: " + tickers.size());
+            tickers.add(ticker);
+            short added = (short) (tickers.size() - 1);
+            tickerPositions.put(ticker, added);
+            return added;
+        }
+
+        EventStore build(boolean offHeap) {
+            String[] tickerTable = tickers.toArray(new String[0]);
+            if (offHeap)
+                return new DirectEventStore(tickerTable, this);
+            return new HeapEventStore(tickerTable, size, epochDays, years, amounts, shares, tickerIndexes, types);
+        }
+    }
+
+    // Columns may be longer than the store, they are the arrays of the builder
+    private static final class HeapEventStore extends EventStore {
+        private final int size;
+        private final int[] epochDays;
+        private final int[] years;
+        private final double[] amounts;
+        private final double[] shares;
+        private final short[] tickerIndexes;
+        private final byte[] types;
+
+        private HeapEventStore(String[] tickers, int size, int[] epochDays, int[] years, double[] amounts, double[] shares, short[] tickerIndexes,
+                               byte[] types) {
+            super(tickers);
+            this.size = size;
+            this.epochDays = epochDays;
+            this.years = years;
+            this.amounts = amounts;
+            this.shares = shares;
+            this.tickerIndexes = tickerIndexes;
+            this.types = types;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int getEpochDay(int i) {
+            return epochDays[i];
+        }
+
+        @Override
+        int getYear(int i) {
+            return years[i];
+        }
+
+        @Override
+        double getAmount(int i) {
+            return amounts[i];
+        }
+
+        @Override
+        double getShares(int i) {
+            return shares[i];
+        }
+
+        @Override
+        int getTypeOrdinal(int i) {
+            return types[i];
+        }
+
+        @Override
+        int getTickerIndex(int i) {
+            return tickerIndexes[i];
+        }
+    }
+
+    // Columns laid out one after the other, widest first so that every value is aligned:
+    // amounts and shares (8 bytes), epoch days and years (4), ticker positions (2), types (1)
+    private static final class DirectEventStore extends EventStore {
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int sharesOffset;
+        private final int epochDaysOffset;
+        private final int yearsOffset;
+        private final int tickersOffset;
+        private final int typesOffset;
+
+        private DirectEventStore(String[] tickers, Builder builder) {
+            super(tickers);
+            this.size = builder.size;
+            this.sharesOffset = 8 * size;
+            this.epochDaysOffset = 16 * size;
+            this.yearsOffset = 20 * size;
+            this.tickersOffset = 24 * size;
+            this.typesOffset = 26 * size;
+            this.buffer = ByteBuffer.allocateDirect(27 * size).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < size; i++) {
+                buffer.putDouble(8 * i, builder.amounts[i]);
+                buffer.putDouble(sharesOffset + 8 * i, builder.shares[i]);
+                buffer.putInt(epochDaysOffset + 4 * i, builder.epochDays[i]);
+                buffer.putInt(yearsOffset + 4 * i, builder.years[i]);
+                buffer.putShort(tickersOffset + 2 * i, builder.tickerIndexes[i]);
+                buffer.put(typesOffset + i, builder.types[i]);
+            }
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int getEpochDay(int i) {
+            return buffer.getInt(epochDaysOffset + 4 * i);
+        }
+
+        @Override
+        int getYear(int i) {
+            return buffer.getInt(yearsOffset + 4 * i);
+        }
+
+        @Override
+        double getAmount(int i) {
+            return buffer.getDouble(8 * i);
+        }
+
+        @Override
+        double getShares(int i) {
+            return buffer.getDouble(sharesOffset + 8 * i);
+        }
+
+        @Override
+        int getTypeOrdinal(int i) {
+            return buffer.get(typesOffset + i);
+        }
+
+        @Override
+        int getTickerIndex(int i) {
+            return buffer.getShort(tickersOffset + 2 * i);
+        }
+    }
+
+    private static final class StoreCursor implements EventCursor {
+        private final EventStore store;
+        private int position;
+        private int epochDay;
+        private LocalDate date;
+
+        private StoreCursor(EventStore store, int from) {
+            this.store = store;
+            this.position = from - 1;
+        }
+
+        @Override
+        public boolean next() {
+            if (position + 1 >= store.size())
+                return false;
+            position++;
+            int next = store.getEpochDay(position);
+            if (date == null || next != epochDay) {
+                epochDay = next;
+                date = LocalDate.ofEpochDay(next);
+            }
+            return true;
+        }
+
+        @Override
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public int getEpochDay() {
+            return epochDay;
+        }
+
+        @Override
+        public LocalDate getDate() {
+            return date;
+        }
+
+        @Override
+        public EventType getType() {
+            return store.getType(position);
+        }
+
+        @Override
+        public double getAmount() {
+            return store.getAmount(position);
+        }
+
+        @Override
+        public double getShares() {
+            return store.getShares(position);
+        }
+
+        @Override
+        public int getYear() {
+            return store.getYear(position);
+        }
+
+        @Override
+        public String getTicker() {
+            return store.getTicker(position);
+        }
+
+        @Override
+        public Event toEvent() {
+            return store.getEvent(position);
+        }
+
+        @Override
+        public String toString() {
+            return toEvent().toString();
+        }
+    }
+}
@@ -1,377 +1,442 @@
 package org.example;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Pair;
+import lombok.AllArgsConstructor;
 import org.example.dtos.*;
-import org.example.repositories.CurrencyConverterFactory;
+import org.example.metrics.Counter;
+import org.example.metrics.Metrics;
+import org.example.metrics.Phase;
 import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+import org.example.repositories.ReferenceData;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.example.dtos.Currency.INR;
 import static org.example.dtos.Currency.USD;
-import static org.example.repositories.CostInflationRepository.getCostInflation;
-import static org.example.repositories.StockPriceRepository.getPeakStockPrice;
-import static org.example.repositories.StockPriceRepository.getStockPrice;
 
 public class FidelityParser {
-    static DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM-dd-yyyy");
-
     public static final String MSFT = "MSFT";
-    static int calendarYear;
-    public static LocalDate cyStartDate;
-    public static LocalDate cyEndDate;
-    static CurrencyConverter currencyConverter;
-    private static LocalDate fyEndDate;
-    private static LocalDate fyStartDate;
-
-    public static void main(String[] args) throws IOException {
+    private static final Counter[] EVENTS_REPLAYED = Arrays.stream(EventType.values())
+            .map(type -> Metrics.counter("events." + type)).toArray(Counter[]::new);
+    private final int calendarYear;
+    private final LocalDate cyStartDate;
+    private final LocalDate cyEndDate;
+    private final LocalDate fyEndDate;
+    private final LocalDate fyStartDate;
+    // Held for the life of the parser, so a run sees one version of the reference data however often it is reloaded
+    private final ReferenceData referenceData;
+    private final CurrencyConverter currencyConverter;
+    private final PrintStream out;
+    private Path checkpointFolder;
+    private ParseCache parseCache;
+    private Path itrJsonFile;
+    private boolean closedYearsSpillOver;
+    private int eventCount;
+    private List<Lot> lots;
+
+    public FidelityParser(int calendarYear, PrintStream out) {
+        this.calendarYear = calendarYear;
+        this.cyStartDate = LocalDate.of(calendarYear, 1, 1);
+        this.cyEndDate = LocalDate.of(calendarYear, 12, 31);
+        this.fyEndDate = LocalDate.of(calendarYear + 1, 3, 31);//Indian FY ends on 31st March
+        this.fyStartDate = LocalDate.of(calendarYear, 4, 1);//Indian FY starts on 1st April
+        this.referenceData = ReferenceData.current();
+        this.currencyConverter = referenceData.getCurrencyConverter(USD, INR);
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 1 && args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--what-if")) {
+            WhatIfSimulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--serve")) {
+            ReportServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--read-journal")) {
+            LotJournalReader.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--years")) {
+            MultiYearRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        boolean checkpoints = false;
+        boolean itrJson = false;
+        boolean metrics = false;
+        boolean watch = false;
+        boolean parseCache = false;
+        while (args.length >= 1 && (args[0].equals("--checkpoints") || args[0].equals("--itr-json") || args[0].equals("--metrics")
+                || args[0].equals("--watch") || args[0].equals("--parse-cache"))) {
+            checkpoints |= args[0].equals("--checkpoints");
+            parseCache |= args[0].equals("--parse-cache");
+            itrJson |= args[0].equals("--itr-json");
+            metrics |= args[0].equals("--metrics");
+            watch |= args[0].equals("--watch");
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
         if (args.length < 2) {
             //For FY 2023-24 provide 2023 as Accounting Year is 2023 Jan - Dec for US
-            System.out.println("Usage: FidelityParser <Folder-Containing-Fidelity-Transaction-History> <Accounting Year>");
+            System.out.println("Usage: FidelityParser [--checkpoints] [--parse-cache] [--itr-json] [--metrics] <Folder-Containing-Fidelity-Transaction-History> <Accounting Year>");
+            System.out.println("       FidelityParser --watch [--itr-json] <Folder-Containing-Fidelity-Transaction-History> <Accounting Year>");
+            System.out.println("       FidelityParser --batch <Folder-Containing-Account-Folders> <Accounting Year> [Threads]");
+            System.out.println("       FidelityParser --what-if <Folder-Containing-Fidelity-Transaction-History> <Accounting Year> <Ticker> <Max-Shares> [Top]");
+            System.out.println("       FidelityParser --serve <Port> [Threads] [Queue-Capacity]");
+            System.out.println("       FidelityParser --years [--itr-json] <Folder-Containing-Fidelity-Transaction-History> <From-Year> <To-Year>");
+            System.out.println("       FidelityParser --read-journal <Lot-Journal-File>");
             return;
         }
         Path folderPath = Paths.get(args[0]);//folder containing fidelity transaction history
         String accountingYearStr = args[1];//accounting year
-        calendarYear = Integer.parseInt(accountingYearStr);
-        cyStartDate = LocalDate.of(calendarYear, 1, 1);
-        cyEndDate = LocalDate.of(calendarYear, 12, 31);
-        fyEndDate = LocalDate.of(calendarYear + 1, 3, 31);//Indian FY ends on 31st March
-        fyStartDate = LocalDate.of(calendarYear, 4, 1);//Indian FY starts on 1st April
-
-        List<Event> events = ReadAllEvents(folderPath);
-        currencyConverter = CurrencyConverterFactory.build(USD, INR);
-        List<Lot> lots = new ArrayList<>();
-        Lot unmetESPPLot = null;
-        for (Event event : events) {
-            if (event.getDate().isAfter(fyEndDate))
-                break;
-
-            boolean beforeCY = event.getDate().isBefore(cyStartDate);
-            boolean afterCY = event.getDate().isAfter(cyEndDate);
-            boolean beforeFY = event.getDate().isBefore(fyStartDate);
-
-            if (event.getType().equals(EventType.BUY) || event.getType().equals(EventType.DEPOSIT)) {
-                //TODO: Get ticker from Data and remove hard coding
-                double acquisitionPrice = currencyConverter.convert(event.getDate(), getInitialValuePerShareIn$(event, event.getDate()));
-                Lot lot = new Lot(event.getDate(), event.getShares(), acquisitionPrice, event.getAmount(), !afterCY);
-                lots.add(lot);
-                if (event.getType().equals(EventType.BUY)) {
+        if (watch) {
+            Path itrJsonFile = itrJson ? folderPath.resolve(String.format("ITR-%s.json", accountingYearStr)) : null;
+            new ReportWatcher(Integer.parseInt(accountingYearStr), folderPath, itrJsonFile, ReportWatcher.SETTLE_MILLIS).run();
+            return;
+        }
+        FidelityParser parser = new FidelityParser(Integer.parseInt(accountingYearStr), System.out);
+        if (checkpoints)
+            parser.setCheckpointFolder(folderPath.resolve(".checkpoints"));
+        if (parseCache)
+            parser.setParseCacheFolder(folderPath.resolve(".parse-cache"));
+        if (itrJson)
+            parser.setItrJsonFile(folderPath.resolve(String.format("ITR-%s.json", accountingYearStr)));
+        parser.run(folderPath);
+        // Kept off stdout, which has the report
+        if (metrics)
+            Metrics.dump(System.err);
+    }
+
+    // Reuses and saves year-start lot checkpoints in this folder so that closed years are not replayed again
+    public void setCheckpointFolder(Path checkpointFolder) {
+        this.checkpointFolder = checkpointFolder;
+    }
+
+    // Keeps the parsed events of each transaction file in this folder, so unchanged files are not parsed again
+    public void setParseCacheFolder(Path parseCacheFolder) {
+        this.parseCache = new ParseCache(parseCacheFolder, ParseCache.MAX_BYTES);
+    }
+
+    // Also writes Schedule FA, Form 67 and LTCG as ITR utility JSON to this file
+    public void setItrJsonFile(Path itrJsonFile) {
+        this.itrJsonFile = itrJsonFile;
+    }
+
+    // Number of events read by the last run
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    // Lots at the end of the FY as replayed by the last run, including the retired ones
+    List<Lot> getLots() {
+        return lots;
+    }
+
+    public void run(Path folderPath) throws IOException {
+        Report report = buildReport(folderPath);
+        try (Phase phase = Metrics.phase("print")) {
+            ReportPrinter.print(report, out);
+        }
+        if (itrJsonFile != null) {
+            try (Phase phase = Metrics.phase("itrJson")) {
+                ItrJsonWriter.write(report, itrJsonFile);
+            }
+        }
+    }
+
+    public Report buildReport(Path folderPath) throws IOException {
+        LotCheckpoint checkpoint;
+        MergedEventCursor events;
+        try (Phase phase = Metrics.phase("read")) {
+            checkpoint = checkpointFolder == null ? null : LotCheckpoint.load(checkpointFolder, folderPath, calendarYear);
+            events = openEvents(folderPath, checkpoint == null ? Integer.MIN_VALUE : calendarYear);
+            if (checkpoint != null && events.getFirstEpochDay() < cyStartDate.toEpochDay()) {
+                // A file of the current or a later year has older transactions, so only a full replay sees everything
+                checkpoint = null;
+                events = openEvents(folderPath, Integer.MIN_VALUE);
+            }
+        }
+        return buildReport(events, checkpoint, folderPath, null);
+    }
+
+    // Report over transaction files already in memory, keyed by the year of each file. Checkpoints are not used.
+    public Report buildReport(Map<Integer, ByteBuffer> transactionFiles) {
+        EventCursor events;
+        try (Phase phase = Metrics.phase("read")) {
+            List<TransactionHistoryReader> files = new ArrayList<>();
+            for (Map.Entry<Integer, ByteBuffer> file : transactionFiles.entrySet())
+                files.add(TransactionHistoryReader.ordered(file.getValue(), file.getKey()));
+            events = new MergedEventCursor(files, (int) fyEndDate.toEpochDay());
+        }
+        return buildReport(events, null, null, null);
+    }
+
+    // Notified with the lot state before the first event of each calendar year up to the accounting year
+    interface YearStartListener {
+        void yearStarted(int index, LotCheckpoint checkpoint);
+    }
+
+    // Replays events from position from on the lot state of the checkpoint, which must be the state before that
+    // event. Checkpoints are neither loaded nor saved.
+    Report replay(EventStore events, int from, LotCheckpoint checkpoint, YearStartListener yearStarts) {
+        return buildReport(events.cursor(from), checkpoint, null, yearStarts);
+    }
+
+    // Replay of this accounting year on the lot state of the checkpoint, or from the start of the history without one
+    Replay newReplay(LotCheckpoint checkpoint) {
+        return new Replay(checkpoint, null);
+    }
+
+    private Report buildReport(EventCursor event, LotCheckpoint checkpoint, Path folderPath, YearStartListener yearStarts) {
+        Replay replay = new Replay(checkpoint, yearStarts);
+        try (Phase phase = Metrics.phase("replay")) {
+            while (event.next()) {
+                if (!replay.accept(event))
+                    break;
+            }
+            replay.finish();
+        }
+        try (Phase phase = Metrics.phase("report")) {
+            return replay.report(folderPath);
+        }
+    }
+
+    // Lot state and income of the accounting year, fed the events in date order from the start of the history or
+    // from the lot state of a checkpoint
+    final class Replay {
+        private final Portfolio portfolio = new Portfolio();
+        private final YearStartListener yearStarts;
+        private final IncomeAggregator income = new IncomeAggregator(calendarYear, currencyConverter);
+        private final int[] replayed = new int[EVENTS_REPLAYED.length];
+        private final LotJournal.Run journal = LotJournal.current() == null ? null : LotJournal.current().newRun(calendarYear);
+        private Lot unmetESPPLot;
+        private LotCheckpoint nextCheckpoint;
+        private int lastYearStart;
+
+        Replay(LotCheckpoint checkpoint, YearStartListener yearStarts) {
+            this.yearStarts = yearStarts;
+            eventCount = 0;
+            if (checkpoint != null) {
+                List<Lot> restored = checkpoint.getLots();
+                restored.forEach(portfolio::add);
+                unmetESPPLot = checkpoint.getUnmetESPPLot(restored);
+            }
+            lastYearStart = checkpoint == null ? Integer.MIN_VALUE : checkpoint.getCalendarYear();
+        }
+
+        // Returns false for an event after the FY end, which is not replayed
+        boolean accept(EventCursor event) {
+            LocalDate date = event.getDate();
+            if (date.isAfter(fyEndDate))
+                return false;
+            EventType type = event.getType();
+            replayed[type.ordinal()]++;
+            eventCount++;
+            if (yearStarts != null && date.getYear() > lastYearStart && date.getYear() <= calendarYear) {
+                yearStarts.yearStarted(event.getPosition(), capture(date.getYear()));
+                lastYearStart = date.getYear();
+            }
+            income.accept(date, type, event.getAmount());
+            if (nextCheckpoint == null && date.isAfter(cyEndDate))
+                nextCheckpoint = capture(calendarYear + 1);
+
+            boolean beforeCY = date.isBefore(cyStartDate);
+            boolean afterCY = date.isAfter(cyEndDate);
+            boolean beforeFY = date.isBefore(fyStartDate);
+
+            if (type.equals(EventType.BUY) || type.equals(EventType.DEPOSIT)) {
+                if (event.getTicker() == null)
+                    throw new RuntimeException("No ticker found for acquisition: " + event);
+                double acquisitionPrice = currencyConverter.convert(date, getInitialValuePerShareIn$(event, date));
+                Lot lot = new Lot(event.getTicker(), date, FixedPoint.toMicroShares(event.getShares()), acquisitionPrice,
+                        FixedPoint.toCents(event.getAmount()), !afterCY);
+                portfolio.add(lot);
+                if (journal != null)
+                    journal.created(event.getPosition(), lot);
+                if (type.equals(EventType.BUY)) {
                     unmetESPPLot = lot;
                 }
-            } else if (event.getType().equals(EventType.SELL)) {
-                double numShares = -1 * event.getShares();
+            } else if (type.equals(EventType.SELL)) {
+                long microShares = -FixedPoint.toMicroShares(event.getShares());
                 double saleAmount = event.getAmount();
-                double saleAmountPerShare = saleAmount / numShares;
-
-                for (Lot lot : lots) {
-                    if (lot.isActive()) {
-                        double numSharesInLot = lot.getNumShares();
-                        double numSharedSold = Math.min(numSharesInLot, numShares);
-                        lot.decrementShares(numSharedSold, beforeCY);
-                        // Only consider sales done in the FY
-                        if (!beforeFY) {
-                            lot.incrementSales(currencyConverter.convertIncome(event.getDate(), numSharedSold * saleAmountPerShare));
-                            lot.incrementSharesSold(numSharedSold);
-                        }
-                        numShares -= numSharedSold;
-                        if(numShares == 0.0)
-                            break;
+
+                portfolio.sell(event.getTicker(), microShares, beforeCY, (lot, microSharesSold) -> {
+                    // Only consider sales done in the FY
+                    long paise = 0;
+                    if (!beforeFY) {
+                        paise = FixedPoint.toPaise(currencyConverter.convertIncome(date, saleAmount * microSharesSold / microShares));
+                        lot.incrementSales(paise);
+                        lot.incrementSharesSold(microSharesSold);
                     }
-                }
-            } else if (event.getType().equals(EventType.DIVIDEND)) {
+                    if (journal != null)
+                        journal.sold(event.getPosition(), event.getEpochDay(), lot, microSharesSold, paise, beforeCY);
+                });
+            } else if (type.equals(EventType.DIVIDEND)) {
                 if (beforeFY)
-                    continue;
+                    return true;
 
                 double amount = event.getAmount();
-                double totalSharesNow = getTotalShares(lots);
-                double dividendPerShare = amount / totalSharesNow;
-                for (Lot lot : lots) {
-                    if (lot.isActive()) {
-                        lot.incrementDividends(currencyConverter.convertIncome(event.getDate(), lot.getNumShares() * dividendPerShare));
-                    }
-                }
-            } else if (event.getType().equals(EventType.ESPP)) {
+                portfolio.allocateDividend(event.getTicker(), (lot, microShares, totalMicroShares) -> {
+                    long paise = FixedPoint.toPaise(currencyConverter.convertIncome(date, amount * microShares / totalMicroShares));
+                    lot.incrementDividends(paise);
+                    if (journal != null)
+                        journal.credited(event.getPosition(), event.getEpochDay(), lot, paise);
+                });
+            } else if (type.equals(EventType.ESPP)) {
                 if (unmetESPPLot == null)
                     throw new RuntimeException("No unmet ESPP lot found");
-                if (unmetESPPLot.getAcquisitionCostIn$() == event.getAmount()) {
-                    unmetESPPLot.setDateOfAcquiring(event.getDate());
+                if (unmetESPPLot.getAcquisitionCostInCents() == FixedPoint.toCents(event.getAmount())) {
+                    unmetESPPLot.setDateOfAcquiring(date);
                     unmetESPPLot.setActiveForCalendarYear(!afterCY);
+                    if (journal != null)
+                        journal.esppDated(event.getPosition(), unmetESPPLot);
                     unmetESPPLot = null;
                 } else {
                     throw new RuntimeException("ESPP lot amount mismatch");
                 }
             }
-        }
-        if (unmetESPPLot != null) {
-            System.out.println("Unmet ESPP lot found : " + unmetESPPLot);
-            lots.remove(unmetESPPLot);
+            return true;
         }
 
-        printEvents(events);
-        int totalSale = printLongTermCapitalGains(lots);
-        int totalSaleFA = printForeignAssets(lots);
-
-        if (totalSale != totalSaleFA)
-            throw new IllegalStateException(String.format("Total Sale is not matching : %d %d", totalSale, totalSaleFA));
-    }
-
-    private static void printEvents(List<Event> events) {
-        printSales(events);
-        Map<LocalDate, Double> taxEvents = printTaxes(events);
-        printDividends(events, taxEvents);
-    }
-
-    private static void printSales(List<Event> events) {
-        System.out.println("------------------------------- Sales ---------------------------------------");
-        System.out.println("Date,Amount(Foreign Currency),Amount(INR)");
-        double sales = 0;
-        for(Event event : events){
-            if(!event.getDate().isBefore(fyStartDate) && event.getType().equals(EventType.SELL) && event.getAmount() > 0){
-                double amount = currencyConverter.convertIncome(event.getDate(), event.getAmount());
-                sales += amount;
-                System.out.printf("%s,%f,%.2f%n",event.getDate(), event.getAmount(), amount);
-            }
+        // Lot state before the events not replayed yet, as the starting state for the given accounting year
+        LotCheckpoint capture(int year) {
+            return LotCheckpoint.capture(year, portfolio.getLots(), unmetESPPLot);
         }
-        System.out.printf("sales = %.2f%n", sales);
-    }
 
-    private static Map<LocalDate, Double> printTaxes(List<Event> events) {
-        Map<LocalDate, Double> taxEvents = new HashMap<>();
-        System.out.println("------------------------------- Taxes ---------------------------------------");
-        System.out.println("Date,Amount(Foreign Currency),Amount(INR)");
-        double taxes = 0;
-        for(Event event : events){
-            if(!event.getDate().isBefore(fyStartDate) && event.getType().equals(EventType.TAX) && event.getAmount() > 0){
-                taxEvents.put(event.getDate(), event.getAmount());
-                double amount = currencyConverter.convertIncome(event.getDate(), event.getAmount());
-                taxes += amount;
-                System.out.printf("%s,%f,%.2f%n",event.getDate(), event.getAmount(), amount);
-            }
+        // Must be called after the last event
+        void finish() {
+            income.finish();
+            for (int type = 0; type < replayed.length; type++)
+                EVENTS_REPLAYED[type].add(replayed[type]);
         }
-        System.out.printf("Total taxes = %.2f%n", taxes);
-        return taxEvents;
-    }
 
-    private static void printDividends(List<Event> events, Map<LocalDate, Double> taxEvents) {
-        System.out.println("------------------------------- Dividends ---------------------------------------");
-        System.out.println("Date,Amount(Foreign Currency),Amount(INR)");
-        double dividendValue = 0;
-        double[] dividendByQuarter = new double[5];
-        TreeMap<LocalDate, Double> dividends = new TreeMap<>();
-        for(Event event : events){
-            if(!event.getDate().isBefore(fyStartDate) && event.getType().equals(EventType.DIVIDEND) && event.getAmount() > 0){
-                if(taxEvents.containsKey(event.getDate())) {
-                    double amount = currencyConverter.convertIncome(event.getDate(), event.getAmount());
-                    dividendValue += amount;
-
-                    if(event.getDate().isBefore(LocalDate.of(calendarYear, 6, 16)))
-                        dividendByQuarter[0] += amount;
-                    else if(event.getDate().isBefore(LocalDate.of(calendarYear, 9, 16)))
-                        dividendByQuarter[1] += amount;
-                    else if(event.getDate().isBefore(LocalDate.of(calendarYear, 12, 16)))
-                        dividendByQuarter[2] += amount;
-                    else if(event.getDate().isBefore(LocalDate.of(calendarYear + 1, 3, 16)))
-                        dividendByQuarter[3] += amount;
-                    else
-                        dividendByQuarter[4] += amount;
-
-                    System.out.printf("%s,%f,%.2f%n", event.getDate(), event.getAmount(), amount);
-                    dividends.put(event.getDate(), amount);
+        Report report(Path folderPath) {
+            if (checkpointFolder != null && folderPath != null && !closedYearsSpillOver) {
+                if (nextCheckpoint == null)
+                    nextCheckpoint = capture(calendarYear + 1);
+                try {
+                    nextCheckpoint.save(checkpointFolder, folderPath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
             }
-        }
-        System.out.printf("Total dividends = %.2f%n", dividendValue);
-        for (int i = 0; i < 5; i++) {
-            System.out.printf("Quarter %d : %.2f%n", i + 1, dividendByQuarter[i]);
-        }
+            String unmetESPPLotDescription = null;
+            if (unmetESPPLot != null) {
+                unmetESPPLotDescription = unmetESPPLot.toString();
+                portfolio.remove(unmetESPPLot);
+            }
+            lots = portfolio.getLots();
 
-        printForm67(dividends);
-    }
+            CapitalGains capitalGains = getLongTermCapitalGains(lots);
+            List<TaxEntry> foreignAssets = getForeignAssets(lots);
+
+            // Both sum the same sales in paise, so they can only differ if a sale is missed
+            int totalSale = capitalGains.getSaleValue();
+            int totalSaleFA = FixedPoint.toRupees(foreignAssets.stream().mapToLong(TaxEntry::getSaleAmountInPaise).sum(), FixedPoint.REPORTED_RUPEES);
+            if (totalSale != totalSaleFA)
+                throw new IllegalStateException(String.format("Total Sale is not matching : %d %d", totalSale, totalSaleFA));
 
-    private static void printForm67(TreeMap<LocalDate, Double> dividends) {
-        int i = 1;
-        System.out.println("------------------------------- Form 67 ---------------------------------------");
-        System.out.println("Sl. No.,Name of the country/specified territory,Please specify,Source of income,Please specify ,Income from outside India,Amount,Rate(%),Tax payable on such income under normal provisions in India,Tax payable on such income under Section 115JB/JC,Article No. of Double Taxation Avoidance Agreements,Rate of tax as per Double Taxation Avoidance Agreements(%),Amount ,Credit claimed under section 91,Total foreign tax credit claimed");
-        for(Map.Entry<LocalDate, Double> entry : dividends.entrySet()){
-            double dividend = Math.round(entry.getValue());
-            double tax = Math.round(dividend/4);
-            double taxNormalProvisions = Math.round(dividend * 0.3);
-            System.out.printf("%d,2,,7,,%d,%d,25,%d,,10,25,%d,0,%d%n",
-                    i, (int)dividend, (int)tax, (int)taxNormalProvisions,(int)tax,(int)tax);
-            i++;
+            return new Report(calendarYear, unmetESPPLotDescription, income.getSales().getEntries(), income.getSales().getTotal(),
+                    income.getTaxes().getEntries(), income.getTaxes().getTotal(), income.getDividends().getEntries(),
+                    income.getDividends().getTotal(), income.getDividendsByQuarter(), income.getForm67(), capitalGains, foreignAssets);
         }
     }
 
-    //Returns total sale value
-    private static int printForeignAssets(List<Lot> lots) {
-        System.out.println("------------------------------- Foreign Assets ---------------------------------------");
-        System.out.println("Date, Initial Value, Peak Value, Closing value, Dividends, SaleAmount");
-        List<TaxEntry> taxEntries = lots.stream().filter(Lot::isActiveForCalendarYear).map(FidelityParser::prepareTaxEntry).collect(Collectors.toList());
-        Map<LocalDate, Optional<TaxEntry>> map = taxEntries.stream().collect(Collectors.groupingBy(TaxEntry::getDateOfAcquiring, Collectors.reducing(TaxEntry::sum)));
-        map.entrySet().stream().sorted(Map.Entry.comparingByKey()).map(Map.Entry::getValue).map(Optional::get).forEach(t -> {
-            validateTaxEntry(t);
-            System.out.println(t);
-        });
-        return (int) map.values().stream().map(Optional::get).mapToDouble(TaxEntry::getSaleAmount).sum();
+    private List<TaxEntry> getForeignAssets(List<Lot> lots) {
+        List<TaxEntry> foreignAssets = new ForeignAssetValuation(referenceData, currencyConverter, fyStartDate, fyEndDate).getForeignAssets(lots);
+        foreignAssets.forEach(FidelityParser::validateTaxEntry);
+        return foreignAssets;
     }
 
     //TODO: Fix Opening, Closing and Peak values
     private static void validateTaxEntry(TaxEntry taxEntry) {
-        if (taxEntry.getSaleAmount() > taxEntry.getPeakValue())
+        if (taxEntry.getSaleAmountInPaise() > taxEntry.getPeakValue() * FixedPoint.PAISE_PER_RUPEE)
             throw new IllegalStateException("Sale amount is greater than peak value: " + taxEntry);
     }
 
-    // Return total sale
-    private static int printLongTermCapitalGains(List<Lot> lots) {
-        double costOfAcquisition = 0;
-        double saleValue = 0;
+    private CapitalGains getLongTermCapitalGains(List<Lot> lots) {
+        long costOfAcquisition = 0;
+        long saleValue = 0;
         for (Lot lot : lots) {
-            if (lot.getSaleAmount() > 0) {
+            if (lot.getSaleAmountInPaise() > 0) {
                 //TODO: Cost of Acquisition has to be calculated for individual sale lots as Sale year should be considered for that lot and not Calendar Year
-                costOfAcquisition += calculateValueWithIndexation(lot.getSharesSold() * lot.getAcquisitionPricePerShare(),
-                        getCostInflation(lot.getDateOfAcquiring().getYear()), getCostInflation(calendarYear));
-                saleValue += lot.getSaleAmount();
+                costOfAcquisition += FixedPoint.toPaise(calculateValueWithIndexation(FixedPoint.toShares(lot.getMicroSharesSold()) * lot.getAcquisitionPricePerShare(),
+                        referenceData.getCostInflation(lot.getDateOfAcquiring().getYear()), referenceData.getCostInflation(calendarYear)));
+                saleValue += lot.getSaleAmountInPaise();
             }
         }
-        System.out.println("------------------------------- Long Term Capital Gains ---------------------------------------");
-        System.out.println("Cost of Acquisition with Indexation, Sale Value");
-        System.out.println((int) costOfAcquisition + ", " + (int) saleValue);
-
-        return (int) saleValue;
+        return new CapitalGains(FixedPoint.toRupees(costOfAcquisition, FixedPoint.REPORTED_RUPEES), FixedPoint.toRupees(saleValue, FixedPoint.REPORTED_RUPEES));
     }
 
-    private static double calculateValueWithIndexation(double value, int baseIndex, int desiredIndex) {
+    static double calculateValueWithIndexation(double value, int baseIndex, int desiredIndex) {
         return value * desiredIndex / baseIndex;
     }
 
-    private static TaxEntry prepareTaxEntry(Lot lot) {
-        LocalDate dateOfAcquiring = lot.getDateOfAcquiring();
-        double numShares = lot.getNumSharesInCalendarYear();
-
-        int initialValue = (int) (lot.getAcquisitionPricePerShare() * numShares);
-        int peakValue = (int) getPeakValue(dateOfAcquiring, numShares);
-        int closingValue = (int) currencyConverter.convert(fyEndDate, getStockPrice(MSFT, fyEndDate) * numShares);
-
-        return new TaxEntry(dateOfAcquiring, initialValue, peakValue, closingValue, (int) lot.getDividends(), lot.getSaleAmount());
-    }
-
-    private static double getTotalShares(List<Lot> lots) {
-        return lots.stream().map(Lot::getNumShares).reduce(Double::sum).orElseThrow(() -> new RuntimeException("No lots found"));
-    }
-
-    private static double getPeakValue(LocalDate dateOfAcquiring, double numShares) {
-        LocalDate startDate = fyStartDate;
-        LocalDate endDate = fyEndDate;
-        if (!dateOfAcquiring.isBefore(startDate))
-            startDate = dateOfAcquiring;
-        if (dateOfAcquiring.isAfter(endDate))
-            throw new RuntimeException("Date of acquiring is after the accounting year: " + dateOfAcquiring);
-
-        Pair<LocalDate, Double> peakPriceAndDate = getPeakStockPrice(MSFT, startDate, endDate);
-        return currencyConverter.convert(peakPriceAndDate.getLeft(), peakPriceAndDate.getRight() * numShares);
-    }
-
-    private static double getInitialValuePerShareIn$(Event event, LocalDate dateOfAcquiring) {
+    private double getInitialValuePerShareIn$(EventCursor event, LocalDate dateOfAcquiring) {
         if (event.getType().equals(EventType.BUY)) {
             return event.getAmount() / event.getShares();
         } else if (event.getType().equals(EventType.DEPOSIT)) {
-            return getStockPrice(MSFT, dateOfAcquiring);
+            return referenceData.getStockPrice(event.getTicker(), dateOfAcquiring);
         } else {
             throw new RuntimeException("Unknown event type: " + event.getType());
         }
     }
 
-    private static List<Event> ReadAllEvents(Path folderPath) throws IOException {
-        List<Event> events = new ArrayList<>();
+    // Opens the transaction files for fromYear onwards, merged by date up to the FY end
+    MergedEventCursor openEvents(Path folderPath, int fromYear) throws IOException {
+        List<Path> paths;
         try (Stream<Path> stream = Files.list(folderPath)) {
-            stream.forEach(path -> {
-                if (!path.toString().contains("Transaction history"))
-                    return;
-                int year = Integer.parseInt(path.getFileName().toString().split(" ")[2].split("\\.")[0]);
-                try (Stream<String> lines = Files.lines(path)) {
-                    AtomicReference<Event> unmetESPP = new AtomicReference<>();
-                    CustomForEach.forEach(lines, (elem, breaker) -> {
-                        elem = elem.replaceAll("\\uFEFF", "");
-                        if (StringUtils.isBlank(elem)) {
-                            breaker.stop();
-                        } else {
-                            Event event = FidelityParser.parseLine(elem, unmetESPP.get(), year);
-                            if (event != null && !event.getDate().isAfter(fyEndDate)) {
-                                events.add(event);
-                                if (event.getType().equals(EventType.BUY)) {
-                                    unmetESPP.set(event);
-                                }
-                            }
-                        }
-                    });
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
+            paths = stream.filter(FidelityParser::isTransactionHistory).filter(path -> getFileYear(path) >= fromYear).collect(Collectors.toList());
         }
-        return events.stream().sorted(Comparator.comparing(Event::getDate)).collect(Collectors.toList());
+        // Rows are found and ordered in parallel, the rest of each row is parsed when the merge reaches it
+        List<OpenFile> files = paths.parallelStream().map(path -> {
+            int year = getFileYear(path);
+            try {
+                if (parseCache != null) {
+                    EventStore events = parseCache.read(path, year);
+                    return new OpenFile(events.cursor(0), year, events.size() == 0 ? Integer.MIN_VALUE : events.getEpochDay(events.size() - 1));
+                }
+                TransactionHistoryReader reader = TransactionHistoryReader.ordered(path, year);
+                return new OpenFile(reader, year, reader.getLastEpochDay());
+            } catch (IOException e) {
+                e.printStackTrace();
+                return new OpenFile(TransactionHistoryReader.ordered(ByteBuffer.allocate(0), year), year, Integer.MIN_VALUE);
+            }
+        }).collect(Collectors.toList());
+        // The next year's checkpoint skips the files up to this year, which is only safe if none of them has later transactions
+        closedYearsSpillOver = false;
+        for (OpenFile file : files)
+            closedYearsSpillOver |= file.year <= calendarYear && file.lastEpochDay > cyEndDate.toEpochDay();
+        return new MergedEventCursor(files.stream().map(file -> file.events).collect(Collectors.toList()), (int) fyEndDate.toEpochDay());
     }
 
-    private static Event parseLine(String line, Event unmetESPPEvent, int year) {
-        if (line.startsWith("Transaction date")) {
-            return null;
-        }
-        String[] tokens = line.split(",");
-
-        String dateStr = tokens[0].trim();
-        LocalDate date = LocalDate.parse(dateStr, formatter);
-        String typeStr = tokens[1].trim();
-        EventType type = getEventType(typeStr);
-        String investmentName = tokens[2].trim();
-        String numShares = tokens[3].trim();
-        numShares = numShares.equals("-") ? "0" : numShares;
-
-        String amountStr = tokens[4].trim().replaceAll("\\$", "");
-        double amount = Double.parseDouble(amountStr);
-        if (amount < 0) {
-            amount = -1 * amount;
-        }
-
-        if (type.equals(EventType.REINVEST) ||
-                // TODO: Dividend whether it is against MICROSOFT CORP or FIDELITY GOVERNMENT CASH RESERVES should be treated as Dividend
-                // However there is no Tax collected by Fidelity on the dividends deposited against FIDELITY GOVERNMENT CASH RESERVES
-                typeStr.contains("KKR") ||
-                typeStr.equals("JOURNALED WIRE/CHECK FEE") || typeStr.equals("JOURNALED CASH WITHDRAWAL")) {
-            return null;
-        }
+    // Events of a transaction file in date order, from the file itself or from the parse cache
+    @AllArgsConstructor
+    private static final class OpenFile {
+        private final EventCursor events;
+        private final int year;
+        private final int lastEpochDay;
+    }
 
-        if (EventType.UNKNOWN.equals(type)) {
-            throw new RuntimeException("Unknown event type: " + typeStr);
-        }
-        double shares = Double.parseDouble(numShares);
-        return new Event(date, type, amount, shares, year);
+    static boolean isTransactionHistory(Path path) {
+        return path.toString().contains("Transaction history");
     }
 
-    private static EventType getEventType(String typeStr) {
-        if (typeStr.equals("DIVIDEND RECEIVED"))
-            return EventType.DIVIDEND;
-        if (typeStr.equals("NON-RESIDENT TAX") || typeStr.equals("NON-RESIDENT TAX DIVIDEND RECEIVED"))
-            return EventType.TAX;
-        if (typeStr.equals("CONVERSION SHARES DEPOSITED"))
-            return EventType.DEPOSIT;
-        if (typeStr.startsWith("YOU BOUGHT ESPP"))
-            return EventType.BUY;
-        if (typeStr.startsWith("YOU SOLD"))
-            return EventType.SELL;
-        if (typeStr.startsWith("REINVESTMENT REINVEST"))
-            return EventType.REINVEST;
-        if (typeStr.startsWith("JOURNALED SPP PURCHASE CREDIT"))
-            return EventType.ESPP;
-        return EventType.UNKNOWN;
+    // "Transaction history 2023.csv" holds the transactions of 2023
+    static int getFileYear(Path path) {
+        return Integer.parseInt(path.getFileName().toString().split(" ")[2].split("\\.")[0]);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Lot;
+import org.example.dtos.TaxEntry;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+import org.example.repositories.ReferenceData;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Schedule FA rows of the lots held in the calendar year. Lots of the same ticker acquired on the same day are one
+// asset, whose shares do not change within the period. Each ticker's closes over the FY are converted at the TTBR of
+// their day into one series of INR per share, and a backward pass turns it into the highest INR price from each
+// trading day to the FY end. The peak of an asset held from a given day is then one lookup times its shares, so the
+// cost grows with days plus assets instead of lots times the price history.
+final class ForeignAssetValuation {
+    private final ReferenceData referenceData;
+    private final CurrencyConverter currencyConverter;
+    private final LocalDate fyStartDate;
+    private final LocalDate fyEndDate;
+    private final Map<String, Prices> prices = new HashMap<>();
+
+    ForeignAssetValuation(ReferenceData referenceData, CurrencyConverter currencyConverter, LocalDate fyStartDate, LocalDate fyEndDate) {
+        this.referenceData = referenceData;
+        this.currencyConverter = currencyConverter;
+        this.fyStartDate = fyStartDate;
+        this.fyEndDate = fyEndDate;
+    }
+
+    // One row per asset, by date of acquisition and then ticker
+    List<TaxEntry> getForeignAssets(List<Lot> lots) {
+        TreeMap<Pair<LocalDate, String>, Asset> assets = new TreeMap<>();
+        for (Lot lot : lots) {
+            if (lot.isActiveForCalendarYear())
+                assets.computeIfAbsent(Pair.of(lot.getDateOfAcquiring(), lot.getTicker()), key -> new Asset()).add(lot);
+        }
+        List<TaxEntry> foreignAssets = new ArrayList<>(assets.size());
+        for (Map.Entry<Pair<LocalDate, String>, Asset> entry : assets.entrySet()) {
+            LocalDate dateOfAcquiring = entry.getKey().getLeft();
+            String ticker = entry.getKey().getRight();
+            Asset asset = entry.getValue();
+            Prices tickerPrices = prices.computeIfAbsent(ticker, this::sweep);
+            double numShares = FixedPoint.toShares(asset.microShares);
+            foreignAssets.add(new TaxEntry(ticker, dateOfAcquiring,
+                    FixedPoint.toRupees(asset.initialValueInPaise, FixedPoint.REPORTED_RUPEES),
+                    FixedPoint.toRupees(tickerPrices.getPeakFrom(dateOfAcquiring) * numShares, FixedPoint.REPORTED_RUPEES),
+                    FixedPoint.toRupees(tickerPrices.closing * numShares, FixedPoint.REPORTED_RUPEES),
+                    FixedPoint.toRupees(asset.dividendsInPaise, FixedPoint.REPORTED_RUPEES), asset.saleAmountInPaise));
+        }
+        return foreignAssets;
+    }
+
+    // The INR prices of the ticker over the FY in one pass forward to convert and one pass back for the peaks
+    private Prices sweep(String ticker) {
+        Pair<int[], double[]> closes = referenceData.getStockPriceRange(ticker, fyStartDate, fyEndDate);
+        int[] epochDays = closes.getLeft();
+        double[] peakFrom = currencyConverter.convert(epochDays, closes.getRight());
+        // Days without a TTBR cannot be valued and are left out of the peaks, NaN until a day is valued
+        for (int i = peakFrom.length - 2; i >= 0; i--) {
+            if (Double.isNaN(peakFrom[i]) || peakFrom[i] < peakFrom[i + 1])
+                peakFrom[i] = peakFrom[i + 1];
+        }
+        double closing = currencyConverter.convert(fyEndDate, referenceData.getStockPrice(ticker, fyEndDate));
+        return new Prices(ticker, epochDays, peakFrom, closing);
+    }
+
+    // Lots of one ticker acquired on one day
+    private static final class Asset {
+        private long microShares;
+        private long initialValueInPaise;
+        private long dividendsInPaise;
+        private long saleAmountInPaise;
+
+        private void add(Lot lot) {
+            microShares += lot.getMicroSharesInCalendarYear();
+            initialValueInPaise += FixedPoint.toPaise(lot.getAcquisitionPricePerShare() * FixedPoint.toShares(lot.getMicroSharesInCalendarYear()));
+            dividendsInPaise += lot.getDividendsInPaise();
+            saleAmountInPaise += lot.getSaleAmountInPaise();
+        }
+    }
+
+    // Highest INR price from each trading day of the FY to its end, and the INR closing price at the FY end
+    private final class Prices {
+        private final String ticker;
+        private final int[] epochDays;
+        private final double[] peakFrom;
+        private final double closing;
+
+        private Prices(String ticker, int[] epochDays, double[] peakFrom, double closing) {
+            this.ticker = ticker;
+            this.epochDays = epochDays;
+            this.peakFrom = peakFrom;
+            this.closing = closing;
+        }
+
+        // Peak over the FY, from the date of acquisition for assets acquired within it
+        private double getPeakFrom(LocalDate dateOfAcquiring) {
+            if (dateOfAcquiring.isAfter(fyEndDate))
+                throw new RuntimeException("Date of acquiring is after the accounting year: " + dateOfAcquiring);
+            LocalDate startDate = dateOfAcquiring.isBefore(fyStartDate) ? fyStartDate : dateOfAcquiring;
+            int i = Arrays.binarySearch(epochDays, (int) startDate.toEpochDay());
+            if (i < 0)
+                i = -i - 1;
+            if (i == epochDays.length || Double.isNaN(peakFrom[i]))
+                throw new RuntimeException(String.format("No stock price and TTBR found for %s between %s and %s", ticker, startDate, fyEndDate));
+            return peakFrom[i];
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.example;
+
+import org.example.dtos.Event;
+import org.example.dtos.EventType;
+import org.example.dtos.Form67Entry;
+import org.example.dtos.IncomeEntry;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Sales, taxes and dividends of the FY aggregated in the same pass as the lot replay. Each income event is converted
+// once and handed to the stages for its type. Dividends only count when tax was withheld on the same day, so they
+// wait in the matcher until the events of their day are over; events arrive in date order.
+final class IncomeAggregator {
+    private final CurrencyConverter currencyConverter;
+    private final LocalDate fyStartDate;
+    private final Totals sales = new Totals();
+    private final Totals taxes = new Totals();
+    private final Totals dividends = new Totals();
+    private final QuarterlyBuckets dividendsByQuarter;
+    private final Form67Rows form67 = new Form67Rows();
+    private final DividendMatcher dividendMatcher;
+
+    IncomeAggregator(int calendarYear, CurrencyConverter currencyConverter) {
+        this.currencyConverter = currencyConverter;
+        this.fyStartDate = LocalDate.of(calendarYear, 4, 1);
+        this.dividendsByQuarter = new QuarterlyBuckets(calendarYear);
+        this.dividendMatcher = new DividendMatcher(dividends.andThen(dividendsByQuarter).andThen(form67));
+    }
+
+    // A stage of the aggregation over converted income
+    interface IncomeStage {
+        void accept(IncomeEntry entry);
+
+        default IncomeStage andThen(IncomeStage next) {
+            return entry -> {
+                accept(entry);
+                next.accept(entry);
+            };
+        }
+    }
+
+    void accept(Event event) {
+        accept(event.getDate(), event.getType(), event.getAmount());
+    }
+
+    void accept(LocalDate date, EventType type, double amount) {
+        dividendMatcher.advanceTo(date);
+        if (date.isBefore(fyStartDate) || amount <= 0)
+            return;
+        if (type != EventType.SELL && type != EventType.TAX && type != EventType.DIVIDEND)
+            return;
+
+        IncomeEntry entry = new IncomeEntry(date, amount, currencyConverter.convertIncome(date, amount));
+        if (type == EventType.SELL) {
+            sales.accept(entry);
+        } else if (type == EventType.TAX) {
+            taxes.accept(entry);
+            dividendMatcher.taxWithheld();
+        } else {
+            dividendMatcher.accept(entry);
+        }
+    }
+
+    // Must be called after the last event
+    void finish() {
+        dividendMatcher.advanceTo(null);
+    }
+
+    Totals getSales() {
+        return sales;
+    }
+
+    Totals getTaxes() {
+        return taxes;
+    }
+
+    Totals getDividends() {
+        return dividends;
+    }
+
+    double[] getDividendsByQuarter() {
+        return dividendsByQuarter.buckets.clone();
+    }
+
+    List<Form67Entry> getForm67() {
+        return form67.getRows();
+    }
+
+    // Entries in order of arrival and their total in INR
+    static final class Totals implements IncomeStage {
+        private final List<IncomeEntry> entries = new ArrayList<>();
+        private double total;
+
+        @Override
+        public void accept(IncomeEntry entry) {
+            entries.add(entry);
+            total += entry.getAmountInINR();
+        }
+
+        List<IncomeEntry> getEntries() {
+            return entries;
+        }
+
+        double getTotal() {
+            return total;
+        }
+    }
+
+    // Advance tax instalment periods: up to 15 Jun, 15 Sep, 15 Dec, 15 Mar and the rest of the FY
+    static final class QuarterlyBuckets implements IncomeStage {
+        private final long[] cutOffs;
+        private final double[] buckets = new double[5];
+
+        QuarterlyBuckets(int calendarYear) {
+            cutOffs = new long[]{LocalDate.of(calendarYear, 6, 16).toEpochDay(), LocalDate.of(calendarYear, 9, 16).toEpochDay(),
+                    LocalDate.of(calendarYear, 12, 16).toEpochDay(), LocalDate.of(calendarYear + 1, 3, 16).toEpochDay()};
+        }
+
+        @Override
+        public void accept(IncomeEntry entry) {
+            long epochDay = entry.getDate().toEpochDay();
+            int bucket = 0;
+            while (bucket < cutOffs.length && epochDay >= cutOffs[bucket])
+                bucket++;
+            buckets[bucket] += entry.getAmountInINR();
+        }
+    }
+
+    // One row per dividend date, the last dividend of a date wins
+    static final class Form67Rows implements IncomeStage {
+        private final List<IncomeEntry> lastOfDate = new ArrayList<>();
+
+        @Override
+        public void accept(IncomeEntry entry) {
+            int last = lastOfDate.size() - 1;
+            if (last >= 0 && lastOfDate.get(last).getDate().equals(entry.getDate()))
+                lastOfDate.set(last, entry);
+            else
+                lastOfDate.add(entry);
+        }
+
+        List<Form67Entry> getRows() {
+            List<Form67Entry> rows = new ArrayList<>(lastOfDate.size());
+            for (IncomeEntry entry : lastOfDate) {
+                double dividend = Math.round(entry.getAmountInINR());
+                double tax = Math.round(dividend / 4);
+                double taxNormalProvisions = Math.round(dividend * 0.3);
+                rows.add(new Form67Entry(rows.size() + 1, (int) dividend, (int) tax, (int) taxNormalProvisions));
+            }
+            return rows;
+        }
+    }
+
+    // Holds the dividends of the current day and passes them on once the day is over, if tax was withheld that day
+    static final class DividendMatcher {
+        private final IncomeStage downstream;
+        private final List<IncomeEntry> pending = new ArrayList<>();
+        private LocalDate date;
+        private boolean taxed;
+
+        DividendMatcher(IncomeStage downstream) {
+            this.downstream = downstream;
+        }
+
+        // A null date flushes the last day
+        void advanceTo(LocalDate next) {
+            if (date != null && date.equals(next))
+                return;
+            if (taxed)
+                pending.forEach(downstream::accept);
+            pending.clear();
+            taxed = false;
+            date = next;
+        }
+
+        void taxWithheld() {
+            taxed = true;
+        }
+
+        void accept(IncomeEntry entry) {
+            pending.add(entry);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Form67Entry;
+import org.example.dtos.Issuer;
+import org.example.dtos.Report;
+import org.example.dtos.TaxEntry;
+import org.example.repositories.IssuerRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Writes the Schedule FA, Form 67 and LTCG sections of a Report in the field names of the ITR utility JSON.
+// Entries are streamed one by one through a JsonGenerator, so no JSON tree or text rows are built in memory.
+final class ItrJsonWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ItrJsonWriter() {
+    }
+
+    // Replaces the file only once it is completely written
+    static void write(Report report, Path file) throws IOException {
+        Path folder = file.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        Path temp = Files.createTempFile(folder, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                write(report, out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static void write(Report report, OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("AssessmentYear", String.format("%d-%02d", report.getCalendarYear() + 1, (report.getCalendarYear() + 2) % 100));
+            writeScheduleFA(report, json);
+            writeForm67(report, json);
+            writeLongTermCapitalGains(report, json);
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeScheduleFA(Report report, JsonGenerator json) throws IOException {
+        json.writeObjectFieldStart("ScheduleFA");
+        json.writeArrayFieldStart("DtlsForeignEquityDebtInterest");
+        for (TaxEntry taxEntry : report.getForeignAssets()) {
+            Issuer issuer = IssuerRepository.getIssuer(taxEntry.getTicker());
+            json.writeStartObject();
+            json.writeStringField("AddressOfEntity", issuer.getAddress());
+            json.writeNumberField("ClosingBalance", taxEntry.getClosingValue());
+            json.writeStringField("CountryCodeExcludingIndia", issuer.getCountryCode());
+            json.writeStringField("CountryName", issuer.getCountryName());
+            json.writeNumberField("InitialValOfInvstmnt", taxEntry.getInitialValue());
+            json.writeStringField("InterestAcquiringDate", taxEntry.getDateOfAcquiring().toString());
+            json.writeStringField("NameOfEntity", issuer.getName());
+            json.writeStringField("NatureOfEntity", issuer.getNature());
+            json.writeNumberField("PeakBalanceDuringPeriod", taxEntry.getPeakValue());
+            json.writeNumberField("TotGrossAmtPaidCredited", taxEntry.getAmountCredited());
+            json.writeNumberField("TotGrossProceeds", FixedPoint.toRupees(taxEntry.getSaleAmountInPaise(), FixedPoint.REPORTED_RUPEES));
+            json.writeStringField("ZipCode", issuer.getZipCode());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    // Dividends from the US taxed at the DTAA rate (Article 10, 25%), all of which is claimed as credit
+    private static void writeForm67(Report report, JsonGenerator json) throws IOException {
+        json.writeObjectFieldStart("Form67");
+        json.writeArrayFieldStart("IncomeFromOutsideIndia");
+        for (Form67Entry entry : report.getForm67()) {
+            json.writeStartObject();
+            json.writeNumberField("SlNo", entry.getSlNo());
+            json.writeStringField("CountryCode", "2");
+            json.writeStringField("SourceOfIncome", "7");
+            json.writeNumberField("IncomeFromOutsideIndia", entry.getIncome());
+            json.writeNumberField("TaxPaidOutsideIndia", entry.getTaxPaid());
+            json.writeNumberField("TaxPaidOutsideIndiaRate", 25);
+            json.writeNumberField("TaxPayableNormalProvisions", entry.getTaxPayableUnderNormalProvisions());
+            json.writeStringField("DTAAArticle", "10");
+            json.writeNumberField("DTAARate", 25);
+            json.writeNumberField("DTAATaxCredit", entry.getTaxPaid());
+            json.writeNumberField("CreditClaimedUnderSection91", 0);
+            json.writeNumberField("TotalForeignTaxCreditClaimed", entry.getTaxPaid());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private static void writeLongTermCapitalGains(Report report, JsonGenerator json) throws IOException {
+        json.writeObjectFieldStart("LongTermCapitalGains");
+        json.writeNumberField("CostOfAcquisitionWithIndexation", report.getLongTermCapitalGains().getCostOfAcquisitionWithIndexation());
+        json.writeNumberField("FullValueOfConsideration", report.getLongTermCapitalGains().getSaleValue());
+        json.writeEndObject();
+    }
+}
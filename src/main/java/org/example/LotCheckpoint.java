@@ -0,0 +1,192 @@
+package org.example;
+
+import org.example.dtos.Lot;
+import org.example.repositories.TickerRepository;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Lot state as seen by the run for an accounting year just before its calendar year starts. Every event before
+// that boundary only moves shares (no CY, FY sales or dividend accounting applies), so the state is the list of
+// open lots and the pending ESPP lot. The run for year Y captures it on its way to the FY end and saves it for
+// year Y + 1 along with a hash of the transaction files for years up to Y, which year Y + 1 then skips reading.
+// The hash also covers the parser version and the ticker mapping the lots were resolved with.
+final class LotCheckpoint {
+    private static final int MAGIC = 0x49545243; // ITRC
+    private static final int VERSION = 3;
+    // Smallest record of a lot: an empty ticker and five 8-byte fields
+    private static final int MIN_LOT_BYTES = 2 + 5 * 8;
+
+    private final int calendarYear;
+    private final String[] tickers;
+    private final long[] epochDays;
+    private final long[] microSharesAtAcquisition;
+    private final double[] acquisitionPricePerShare;
+    private final long[] acquisitionCostInCents;
+    private final long[] microShares;
+    private final int unmetESPPLot;
+
+    private LotCheckpoint(int calendarYear, String[] tickers, long[] epochDays, long[] microSharesAtAcquisition, double[] acquisitionPricePerShare,
+                          long[] acquisitionCostInCents, long[] microShares, int unmetESPPLot) {
+        this.calendarYear = calendarYear;
+        this.tickers = tickers;
+        this.epochDays = epochDays;
+        this.microSharesAtAcquisition = microSharesAtAcquisition;
+        this.acquisitionPricePerShare = acquisitionPricePerShare;
+        this.acquisitionCostInCents = acquisitionCostInCents;
+        this.microShares = microShares;
+        this.unmetESPPLot = unmetESPPLot;
+    }
+
+    // Captures the open lots and the pending ESPP lot as the starting state for the given accounting year
+    static LotCheckpoint capture(int calendarYear, List<Lot> lots, Lot unmetESPPLot) {
+        List<Lot> kept = lots.stream().filter(lot -> lot.isActive() || lot == unmetESPPLot).collect(Collectors.toList());
+        int n = kept.size();
+        String[] tickers = new String[n];
+        long[] epochDays = new long[n];
+        long[] microSharesAtAcquisition = new long[n];
+        double[] acquisitionPricePerShare = new double[n];
+        long[] acquisitionCostInCents = new long[n];
+        long[] microShares = new long[n];
+        for (int i = 0; i < n; i++) {
+            Lot lot = kept.get(i);
+            tickers[i] = lot.getTicker();
+            epochDays[i] = lot.getDateOfAcquiring().toEpochDay();
+            microSharesAtAcquisition[i] = lot.getMicroSharesAtAcquisition();
+            acquisitionPricePerShare[i] = lot.getAcquisitionPricePerShare();
+            acquisitionCostInCents[i] = lot.getAcquisitionCostInCents();
+            microShares[i] = lot.getMicroShares();
+        }
+        return new LotCheckpoint(calendarYear, tickers, epochDays, microSharesAtAcquisition, acquisitionPricePerShare,
+                acquisitionCostInCents, microShares, kept.indexOf(unmetESPPLot));
+    }
+
+    List<Lot> getLots() {
+        List<Lot> lots = new ArrayList<>(epochDays.length);
+        for (int i = 0; i < epochDays.length; i++) {
+            lots.add(Lot.restore(tickers[i], LocalDate.ofEpochDay(epochDays[i]), microSharesAtAcquisition[i], acquisitionPricePerShare[i],
+                    acquisitionCostInCents[i], microShares[i]));
+        }
+        return lots;
+    }
+
+    int getCalendarYear() {
+        return calendarYear;
+    }
+
+    // Must be called on the list returned by getLots
+    Lot getUnmetESPPLot(List<Lot> lots) {
+        return unmetESPPLot < 0 ? null : lots.get(unmetESPPLot);
+    }
+
+    void save(Path checkpointFolder, Path transactionFolder) throws IOException {
+        Files.createDirectories(checkpointFolder);
+        Path file = getFile(checkpointFolder, calendarYear);
+        Path temp = Files.createTempFile(checkpointFolder, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(calendarYear);
+            out.write(hashInputs(transactionFolder, calendarYear));
+            out.writeInt(epochDays.length);
+            for (int i = 0; i < epochDays.length; i++) {
+                out.writeUTF(tickers[i]);
+                out.writeLong(epochDays[i]);
+                out.writeLong(microSharesAtAcquisition[i]);
+                out.writeDouble(acquisitionPricePerShare[i]);
+                out.writeLong(acquisitionCostInCents[i]);
+                out.writeLong(microShares[i]);
+            }
+            out.writeInt(unmetESPPLot);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Returns null when there is no checkpoint for the year, it was written by another format version, the inputs it
+    // was built from have changed since or it is damaged, in which case it is deleted
+    static LotCheckpoint load(Path checkpointFolder, Path transactionFolder, int calendarYear) throws IOException {
+        Path file = getFile(checkpointFolder, calendarYear);
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != calendarYear)
+                return null;
+            byte[] hash = new byte[32];
+            in.readFully(hash);
+            if (!Arrays.equals(hash, hashInputs(transactionFolder, calendarYear)))
+                return null;
+
+            int n = in.readInt();
+            if (n < 0 || n > Files.size(file) / MIN_LOT_BYTES)
+                throw new StreamCorruptedException("Lot count " + n);
+            String[] tickers = new String[n];
+            long[] epochDays = new long[n];
+            long[] microSharesAtAcquisition = new long[n];
+            double[] acquisitionPricePerShare = new double[n];
+            long[] acquisitionCostInCents = new long[n];
+            long[] microShares = new long[n];
+            for (int i = 0; i < n; i++) {
+                tickers[i] = in.readUTF();
+                epochDays[i] = in.readLong();
+                microSharesAtAcquisition[i] = in.readLong();
+                acquisitionPricePerShare[i] = in.readDouble();
+                acquisitionCostInCents[i] = in.readLong();
+                microShares[i] = in.readLong();
+            }
+            int unmetESPPLot = in.readInt();
+            if (unmetESPPLot < -1 || unmetESPPLot >= n)
+                throw new StreamCorruptedException("Unmet ESPP lot " + unmetESPPLot);
+            return new LotCheckpoint(calendarYear, tickers, epochDays, microSharesAtAcquisition, acquisitionPricePerShare,
+                    acquisitionCostInCents, microShares, unmetESPPLot);
+        } catch (EOFException | UTFDataFormatException | StreamCorruptedException e) {
+            return damaged(file, e);
+        }
+    }
+
+    private static LotCheckpoint damaged(Path file, IOException e) throws IOException {
+        System.err.println("Discarding damaged checkpoint " + file.getFileName() + ": " + e);
+        Files.deleteIfExists(file);
+        return null;
+    }
+
+    private static Path getFile(Path checkpointFolder, int calendarYear) {
+        return checkpointFolder.resolve(String.format("lots-%d.bin", calendarYear));
+    }
+
+    // SHA-256 over the parser version, the ticker mapping and the names and contents of the transaction files for
+    // years before the given one
+    private static byte[] hashInputs(Path transactionFolder, int calendarYear) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(ByteBuffer.allocate(4).putInt(TransactionHistoryReader.VERSION).array());
+        digest.update(TickerRepository.getMappingDigest());
+        List<Path> paths;
+        try (Stream<Path> stream = Files.list(transactionFolder)) {
+            paths = stream.filter(FidelityParser::isTransactionHistory)
+                    .filter(path -> FidelityParser.getFileYear(path) < calendarYear)
+                    .sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            digest.update(path.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(path));
+        }
+        return digest.digest();
+    }
+}
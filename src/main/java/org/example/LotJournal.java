@@ -0,0 +1,159 @@
+package org.example;
+
+import org.example.dtos.Lot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Binary journal of every lot mutation of the replays, enabled with -Ditrhelper.lotJournal=<file>. The file is
+// memory-mapped at a fixed size and used as a ring of fixed-width records, so a long batch keeps its latest records
+// and what was written survives the JVM failing on a lot. Writers from any thread claim a sequence number and fill
+// the slot it maps to; the sequence number is written last and marks the record complete. Each JVM starts the file
+// afresh. Decode it with FidelityParser --read-journal <file>.
+//
+// Header (RECORD_BYTES): MAGIC, VERSION, RECORD_BYTES, capacity in records. Record, native byte order:
+// long sequence (from 1), int kind, int run, int lot, int event index, int epoch day, int accounting year,
+// long micro-shares, long amount (cents of the cost for CREATE and RESTORE, paise credited otherwise), long micro-shares
+// left in the lot (in the lot's calendar year holding for CY_DECREMENT), 8 bytes of ticker (ASCII, zero padded)
+final class LotJournal {
+    static final String FILE_PROPERTY = "itrhelper.lotJournal";
+    static final String RECORDS_PROPERTY = "itrhelper.lotJournalRecords";
+    static final int MAGIC = 0x49544c4a; // ITLJ
+    static final int VERSION = 1;
+    static final int RECORD_BYTES = 64;
+    static final int TICKER_BYTES = 8;
+
+    // Kinds of records
+    static final int CREATE = 1;
+    static final int RESTORE = 2;
+    static final int ESPP_DATE = 3;
+    static final int SALE = 4;
+    static final int CY_DECREMENT = 5;
+    static final int DIVIDEND = 6;
+    static final String[] KIND_NAMES = {null, "CREATE", "RESTORE", "ESPP_DATE", "SALE", "CY_DECREMENT", "DIVIDEND"};
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private static class Holder {
+        private static final LotJournal current = open();
+    }
+
+    LotJournal(Path file, int capacity) throws IOException {
+        if (capacity <= 0 || capacity >= Integer.MAX_VALUE / RECORD_BYTES)
+            throw new IllegalArgumentException("Journal capacity out of range: " + capacity);
+        this.capacity = capacity;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) RECORD_BYTES * (capacity + 1));
+        }
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_BYTES);
+        buffer.putInt(12, capacity);
+    }
+
+    // The journal of this JVM, null when it is not enabled
+    static LotJournal current() {
+        return Holder.current;
+    }
+
+    private static LotJournal open() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null)
+            return null;
+        try {
+            return new LotJournal(Paths.get(file), Integer.getInteger(RECORDS_PROPERTY, 1 << 20));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Records of one replay, numbered on their own so that concurrent replays can be told apart
+    Run newRun(int calendarYear) {
+        return new Run(runs.incrementAndGet(), calendarYear);
+    }
+
+    private void append(int kind, int run, int lot, int eventIndex, int epochDay, int year, long microShares, long amount, long balance,
+                        String ticker) {
+        long seq = sequence.incrementAndGet();
+        int at = RECORD_BYTES * (1 + (int) ((seq - 1) % capacity));
+        buffer.putInt(at + 8, kind);
+        buffer.putInt(at + 12, run);
+        buffer.putInt(at + 16, lot);
+        buffer.putInt(at + 20, eventIndex);
+        buffer.putInt(at + 24, epochDay);
+        buffer.putInt(at + 28, year);
+        buffer.putLong(at + 32, microShares);
+        buffer.putLong(at + 40, amount);
+        buffer.putLong(at + 48, balance);
+        for (int i = 0; i < TICKER_BYTES; i++) {
+            char c = ticker != null && i < ticker.length() ? ticker.charAt(i) : 0;
+            buffer.put(at + 56 + i, (byte) (c < 128 ? c : '?'));
+        }
+        buffer.putLong(at, seq);
+    }
+
+    // Journal of one replay. Lots are numbered as they are first seen; lots restored from a checkpoint are recorded
+    // with their state when first touched. Not thread-safe, like the replay it belongs to.
+    final class Run {
+        private final int id;
+        private final int calendarYear;
+        private final Map<Lot, Integer> lotIds = new IdentityHashMap<>();
+
+        private Run(int id, int calendarYear) {
+            this.id = id;
+            this.calendarYear = calendarYear;
+        }
+
+        void created(int eventIndex, Lot lot) {
+            int lotId = lotIds.size() + 1;
+            lotIds.put(lot, lotId);
+            append(CREATE, id, lotId, eventIndex, (int) lot.getDateOfAcquiring().toEpochDay(), calendarYear, lot.getMicroSharesAtAcquisition(),
+                    lot.getAcquisitionCostInCents(), lot.getMicroShares(), lot.getTicker());
+        }
+
+        void esppDated(int eventIndex, Lot lot) {
+            append(ESPP_DATE, id, getLotId(eventIndex, lot), eventIndex, (int) lot.getDateOfAcquiring().toEpochDay(), calendarYear, 0, 0,
+                    lot.getMicroShares(), lot.getTicker());
+        }
+
+        // After the shares have left the lot, with the paise credited for them (0 for sales before the FY)
+        void sold(int eventIndex, int epochDay, Lot lot, long microShares, long paise, boolean beforeCY) {
+            int lotId = getLotId(eventIndex, lot);
+            append(SALE, id, lotId, eventIndex, epochDay, calendarYear, microShares, paise, lot.getMicroShares(), lot.getTicker());
+            if (beforeCY)
+                append(CY_DECREMENT, id, lotId, eventIndex, epochDay, calendarYear, microShares, 0, lot.getMicroSharesInCalendarYear(), lot.getTicker());
+        }
+
+        void credited(int eventIndex, int epochDay, Lot lot, long paise) {
+            append(DIVIDEND, id, getLotId(eventIndex, lot), eventIndex, epochDay, calendarYear, lot.getMicroShares(), paise, lot.getMicroShares(),
+                    lot.getTicker());
+        }
+
+        private int getLotId(int eventIndex, Lot lot) {
+            Integer lotId = lotIds.get(lot);
+            if (lotId != null)
+                return lotId;
+            lotId = lotIds.size() + 1;
+            lotIds.put(lot, lotId);
+            append(RESTORE, id, lotId, eventIndex, (int) lot.getDateOfAcquiring().toEpochDay(), calendarYear, lot.getMicroSharesAtAcquisition(),
+                    lot.getAcquisitionCostInCents(), lot.getMicroShares(), lot.getTicker());
+            return lotId;
+        }
+    }
+}
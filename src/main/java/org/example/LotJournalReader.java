@@ -0,0 +1,69 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import static org.example.LotJournal.*;
+
+// Prints a lot journal as CSV, oldest record first. Once the ring has wrapped only the latest capacity records are
+// left, and a record whose sequence number does not match its slot was overwritten or never finished.
+final class LotJournalReader {
+
+    private LotJournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: LotJournalReader <Journal-File>");
+            return;
+        }
+        print(Paths.get(args[0]), System.out);
+    }
+
+    static void print(Path file, PrintStream out) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.nativeOrder());
+        if (buffer.capacity() < RECORD_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_BYTES)
+            throw new IllegalArgumentException("Not a lot journal of version " + VERSION + ": " + file);
+        int capacity = buffer.getInt(12);
+        if ((long) RECORD_BYTES * (capacity + 1) > buffer.capacity())
+            throw new IllegalArgumentException("Lot journal is truncated: " + file);
+
+        long last = 0;
+        for (int slot = 0; slot < capacity; slot++)
+            last = Math.max(last, buffer.getLong(RECORD_BYTES * (slot + 1)));
+        out.println("Sequence,Run,Year,Kind,Lot,Event,Date,Ticker,Shares,Amount,Shares Left");
+        for (long seq = Math.max(1, last - capacity + 1); seq <= last; seq++) {
+            int at = RECORD_BYTES * (1 + (int) ((seq - 1) % capacity));
+            if (buffer.getLong(at) != seq)
+                continue;
+            int kind = buffer.getInt(at + 8);
+            byte[] ticker = new byte[TICKER_BYTES];
+            for (int i = 0; i < TICKER_BYTES; i++)
+                ticker[i] = buffer.get(at + 56 + i);
+            long amount = buffer.getLong(at + 40);
+            // Acquisition costs are in cents of USD, credits in paise
+            String formattedAmount = (kind == CREATE || kind == RESTORE ? "$" : "") + BigDecimal.valueOf(amount, 2).toPlainString();
+            out.printf("%d,%d,%d,%s,%d,%d,%s,%s,%s,%s,%s%n", seq, buffer.getInt(at + 12), buffer.getInt(at + 28),
+                    kind > 0 && kind < KIND_NAMES.length ? KIND_NAMES[kind] : String.valueOf(kind), buffer.getInt(at + 16),
+                    buffer.getInt(at + 20), LocalDate.ofEpochDay(buffer.getInt(at + 24)), new String(ticker, StandardCharsets.US_ASCII).trim(),
+                    shares(buffer.getLong(at + 32)), formattedAmount, shares(buffer.getLong(at + 48)));
+        }
+    }
+
+    private static String shares(long microShares) {
+        return BigDecimal.valueOf(microShares, 6).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import org.example.dtos.Lot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Lots in the order they were acquired. Sales consume them first in, first out, so fully sold lots always form a
+// prefix which the ledger skips with a cursor; they are kept only for reporting. The shares held across open lots
+// are maintained as lots are added and sold instead of being summed on every dividend. Shares are micro-shares, so
+// a sale of everything held leaves exactly zero.
+final class LotLedger {
+    private final List<Lot> lots = new ArrayList<>();
+    // Lots before this position are retired
+    private int firstOpen;
+    private long openShares;
+
+    interface SaleAllocation {
+        void accept(Lot lot, long microShares);
+    }
+
+    void add(Lot lot) {
+        lots.add(lot);
+        if (lot.isActive())
+            openShares += lot.getMicroShares();
+    }
+
+    // Takes microShares from the oldest open lots and reports how many came out of each
+    void sell(long microShares, boolean beforeCY, SaleAllocation allocation) {
+        for (int i = firstOpen; i < lots.size(); i++) {
+            Lot lot = lots.get(i);
+            if (lot.isActive()) {
+                long sold = Math.min(lot.getMicroShares(), microShares);
+                lot.decrementShares(sold, beforeCY);
+                openShares -= sold;
+                allocation.accept(lot, sold);
+                microShares -= sold;
+                if (microShares == 0)
+                    break;
+            }
+        }
+        while (firstOpen < lots.size() && !lots.get(firstOpen).isActive())
+            firstOpen++;
+    }
+
+    long getOpenShares() {
+        if (lots.isEmpty())
+            throw new RuntimeException("No lots found");
+        return openShares;
+    }
+
+    List<Lot> getOpenLots() {
+        return Collections.unmodifiableList(lots.subList(firstOpen, lots.size()));
+    }
+
+    // All lots including the retired ones, in order of acquisition
+    List<Lot> getLots() {
+        return Collections.unmodifiableList(lots);
+    }
+
+    void remove(Lot lot) {
+        int i = lots.indexOf(lot);
+        if (i < 0)
+            return;
+        if (lot.isActive())
+            openShares -= lot.getMicroShares();
+        lots.remove(i);
+        if (i < firstOpen)
+            firstOpen--;
+    }
+}
@@ -0,0 +1,128 @@
+package org.example;
+
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Lot;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Open lots of one ticker frozen for simulation, column-wise in order of acquisition. Snapshots are immutable and
+// a sale returns a new one that shares every column except the open shares, so forking a state costs one array
+// copy per sale however many scenarios start from it. Open shares are held in micro-shares.
+final class LotSnapshot {
+    private final String ticker;
+    private final long[] epochDays;
+    private final double[] acquisitionPricePerShare;
+    private final long[] openShares;
+    private final long totalShares;
+    // Positions of the lots from the highest acquisition price down, same for every fork
+    private final int[] byCostDescending;
+
+    private LotSnapshot(String ticker, long[] epochDays, double[] acquisitionPricePerShare, long[] openShares, int[] byCostDescending) {
+        this.ticker = ticker;
+        this.epochDays = epochDays;
+        this.acquisitionPricePerShare = acquisitionPricePerShare;
+        this.openShares = openShares;
+        this.byCostDescending = byCostDescending;
+        long total = 0;
+        for (long shares : openShares)
+            total += shares;
+        this.totalShares = total;
+    }
+
+    // Takes the open lots of the ticker in the given order of acquisition
+    static LotSnapshot of(String ticker, List<Lot> lots) {
+        Lot[] open = lots.stream().filter(lot -> lot.getTicker().equals(ticker) && lot.isActive()).toArray(Lot[]::new);
+        long[] epochDays = new long[open.length];
+        double[] prices = new double[open.length];
+        long[] shares = new long[open.length];
+        for (int i = 0; i < open.length; i++) {
+            epochDays[i] = open[i].getDateOfAcquiring().toEpochDay();
+            prices[i] = open[i].getAcquisitionPricePerShare();
+            shares[i] = open[i].getMicroShares();
+        }
+        int[] byCostDescending = IntStream.range(0, open.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> prices[i]).reversed())
+                .mapToInt(Integer::intValue).toArray();
+        return new LotSnapshot(ticker, epochDays, prices, shares, byCostDescending);
+    }
+
+    String getTicker() {
+        return ticker;
+    }
+
+    int size() {
+        return epochDays.length;
+    }
+
+    long getEpochDay(int lot) {
+        return epochDays[lot];
+    }
+
+    double getAcquisitionPricePerShare(int lot) {
+        return acquisitionPricePerShare[lot];
+    }
+
+    double getOpenShares(int lot) {
+        return FixedPoint.toShares(openShares[lot]);
+    }
+
+    double getTotalShares() {
+        return FixedPoint.toShares(totalShares);
+    }
+
+    // Open shares of the lots acquired on or before the given day, the only ones a sale on that day can take
+    double getSharesHeldOn(long epochDay) {
+        long held = 0;
+        for (int lot = 0; lot < epochDays.length; lot++) {
+            if (epochDays[lot] <= epochDay)
+                held += openShares[lot];
+        }
+        return FixedPoint.toShares(held);
+    }
+
+    int[] getFifoOrder() {
+        return IntStream.range(0, epochDays.length).toArray();
+    }
+
+    int[] getHighestCostFirstOrder() {
+        return byCostDescending.clone();
+    }
+
+    // The given lot first and the rest first in, first out
+    int[] getSpecificLotOrder(int lot) {
+        if (lot < 0 || lot >= epochDays.length)
+            throw new IllegalArgumentException("No open lot " + lot + " for ticker: " + ticker);
+        int[] order = new int[epochDays.length];
+        order[0] = lot;
+        for (int i = 0, j = 1; i < epochDays.length; i++) {
+            if (i != lot)
+                order[j++] = i;
+        }
+        return order;
+    }
+
+    // Takes numShares on the given day from the lots in the given order, skipping lots acquired after it, and records
+    // the shares taken from each lot into sharesSold
+    LotSnapshot sell(double numShares, long epochDay, int[] order, double[] sharesSold) {
+        long microShares = FixedPoint.toMicroShares(numShares);
+        if (microShares > FixedPoint.toMicroShares(getSharesHeldOn(epochDay)))
+            throw new IllegalArgumentException(String.format("Cannot sell %s shares of %s on %s, only %s are held", numShares, ticker,
+                    LocalDate.ofEpochDay(epochDay), getSharesHeldOn(epochDay)));
+        long[] remaining = Arrays.copyOf(openShares, openShares.length);
+        for (int lot : order) {
+            if (microShares == 0)
+                break;
+            if (epochDays[lot] > epochDay)
+                continue;
+            long sold = Math.min(remaining[lot], microShares);
+            remaining[lot] -= sold;
+            sharesSold[lot] += FixedPoint.toShares(sold);
+            microShares -= sold;
+        }
+        return new LotSnapshot(ticker, epochDays, acquisitionPricePerShare, remaining, byCostDescending);
+    }
+}
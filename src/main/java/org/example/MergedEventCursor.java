@@ -0,0 +1,148 @@
+package org.example;
+
+import org.example.dtos.EventType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Merges transaction files, each read in date order, into one stream of events by date. A binary heap holds the
+// file of each next event, ordered by date and then by position in the list of files, so events on the same date
+// come in file order and then in their order within the file. A file leaves the heap once its next event is after
+// the last day, so nothing past it is parsed. Only the current event of each file is held.
+final class MergedEventCursor implements EventCursor {
+    private final EventCursor[] files;
+    private final int lastEpochDay;
+    private final int[] heap;
+    private int heapSize;
+    private EventCursor current;
+    private int position = -1;
+    private int epochDay;
+    private LocalDate date;
+
+    MergedEventCursor(List<? extends EventCursor> files, int lastEpochDay) {
+        this.files = files.toArray(new EventCursor[0]);
+        this.lastEpochDay = lastEpochDay;
+        this.heap = new int[this.files.length];
+        for (int file = 0; file < this.files.length; file++) {
+            if (advance(file)) {
+                heap[heapSize] = file;
+                siftUp(heapSize++);
+            }
+        }
+    }
+
+    // Date of the first event, Integer.MAX_VALUE when there are none. Only valid before the first call to next.
+    int getFirstEpochDay() {
+        return heapSize == 0 ? Integer.MAX_VALUE : files[heap[0]].getEpochDay();
+    }
+
+    @Override
+    public boolean next() {
+        // The file of the current event moves on only now, as its reader holds the current event
+        if (current != null) {
+            if (advance(heap[0])) {
+                siftDown(0);
+            } else {
+                heap[0] = heap[--heapSize];
+                siftDown(0);
+            }
+        }
+        if (heapSize == 0) {
+            current = null;
+            return false;
+        }
+        current = files[heap[0]];
+        position++;
+        int next = current.getEpochDay();
+        if (date == null || next != epochDay) {
+            epochDay = next;
+            date = LocalDate.ofEpochDay(next);
+        }
+        return true;
+    }
+
+    private boolean advance(int file) {
+        return files[file].next() && files[file].getEpochDay() <= lastEpochDay;
+    }
+
+    private boolean isBefore(int file, int other) {
+        int day = files[file].getEpochDay();
+        int otherDay = files[other].getEpochDay();
+        return day < otherDay || day == otherDay && file < other;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!isBefore(heap[i], heap[parent]))
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < heapSize; child++) {
+                if (isBefore(heap[child], heap[smallest]))
+                    smallest = child;
+            }
+            if (smallest == i)
+                return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int file = heap[i];
+        heap[i] = heap[j];
+        heap[j] = file;
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    @Override
+    public LocalDate getDate() {
+        return date;
+    }
+
+    @Override
+    public EventType getType() {
+        return current.getType();
+    }
+
+    @Override
+    public double getAmount() {
+        return current.getAmount();
+    }
+
+    @Override
+    public double getShares() {
+        return current.getShares();
+    }
+
+    @Override
+    public int getYear() {
+        return current.getYear();
+    }
+
+    @Override
+    public String getTicker() {
+        return current.getTicker();
+    }
+
+    @Override
+    public String toString() {
+        return toEvent().toString();
+    }
+}
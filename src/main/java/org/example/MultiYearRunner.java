@@ -0,0 +1,109 @@
+package org.example;
+
+import org.apache.commons.io.output.NullPrintStream;
+import org.example.dtos.Report;
+import org.example.metrics.Metrics;
+import org.example.metrics.Phase;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Reports for a range of accounting years from one pass over the events. The replay of each year starts, at the first
+// event of its calendar year, from the lots of the previous year's replay at that point, as a year-start checkpoint
+// would. Consecutive replays overlap only from January to the end of March, so the pass costs about one replay of
+// the history however many years it covers, and the reference data is loaded once.
+final class MultiYearRunner {
+
+    private MultiYearRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean itrJson = args.length >= 1 && args[0].equals("--itr-json");
+        if (itrJson)
+            args = Arrays.copyOfRange(args, 1, args.length);
+        if (args.length < 3) {
+            System.out.println("Usage: MultiYearRunner [--itr-json] <Folder-Containing-Fidelity-Transaction-History> <From-Year> <To-Year>");
+            return;
+        }
+        Path folderPath = Paths.get(args[0]);
+        int fromYear = Integer.parseInt(args[1]);
+        int toYear = Integer.parseInt(args[2]);
+
+        long start = System.nanoTime();
+        TreeMap<Integer, Report> reports = buildReports(folderPath, fromYear, toYear);
+        for (Report report : reports.values()) {
+            Path reportFile = folderPath.resolve(String.format("Report-%d.txt", report.getCalendarYear()));
+            write(report, reportFile);
+            if (itrJson)
+                ItrJsonWriter.write(report, folderPath.resolve(String.format("ITR-%d.json", report.getCalendarYear())));
+            System.out.println("Wrote " + reportFile.getFileName());
+        }
+        System.out.printf("Years = %d, Elapsed = %d ms%n", reports.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Reports of the accounting years fromYear to toYear by year
+    static TreeMap<Integer, Report> buildReports(Path folderPath, int fromYear, int toYear) throws IOException {
+        if (toYear < fromYear)
+            throw new IllegalArgumentException("To year " + toYear + " is before from year " + fromYear);
+        int years = toYear - fromYear + 1;
+        FidelityParser[] parsers = new FidelityParser[years];
+        for (int i = 0; i < years; i++)
+            parsers[i] = new FidelityParser(fromYear + i, NullPrintStream.INSTANCE);
+
+        EventCursor event;
+        try (Phase phase = Metrics.phase("read")) {
+            // Merged up to the FY end of the last year
+            event = parsers[years - 1].openEvents(folderPath, Integer.MIN_VALUE);
+        }
+        FidelityParser.Replay[] replays = new FidelityParser.Replay[years];
+        replays[0] = parsers[0].newReplay(null);
+        // Replays from finished to started - 1 are taking events, the FY of the earlier ones is over
+        int started = 1;
+        int finished = 0;
+        try (Phase phase = Metrics.phase("replay")) {
+            while (event.next()) {
+                int year = event.getDate().getYear();
+                for (; started < years && fromYear + started <= year; started++)
+                    replays[started] = parsers[started].newReplay(replays[started - 1].capture(fromYear + started));
+                // FYs end in year order, so the replays that are over are the first ones
+                for (int i = finished; i < started; i++) {
+                    if (!replays[i].accept(event)) {
+                        replays[i].finish();
+                        finished++;
+                    }
+                }
+            }
+            for (; started < years; started++)
+                replays[started] = parsers[started].newReplay(replays[started - 1].capture(fromYear + started));
+            for (; finished < years; finished++)
+                replays[finished].finish();
+        }
+
+        TreeMap<Integer, Report> reports = new TreeMap<>();
+        try (Phase phase = Metrics.phase("report")) {
+            for (int i = 0; i < years; i++)
+                reports.put(fromYear + i, replays[i].report(null));
+        }
+        return reports;
+    }
+
+    private static void write(Report report, Path reportFile) throws IOException {
+        Path temp = Files.createTempFile(reportFile.getParent(), reportFile.getFileName().toString(), ".tmp");
+        try {
+            try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(temp)), false, "UTF-8")) {
+                ReportPrinter.print(report, out);
+            }
+            Files.move(temp, reportFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.example;
+
+import org.example.dtos.EventType;
+import org.example.metrics.Metrics;
+import org.example.repositories.TickerRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// On-disk cache of the events of transaction files, so that files of closed years are not parsed on every run.
+// Entries are named by the SHA-256 of the parser version, the ticker mapping the events were resolved with and the
+// file content, so a changed file, parser or mapping simply misses. An entry holds the events of one file in date
+// order, column by column, and ends with a CRC32 of everything before it. It is read with one sequential read. An
+// entry that does not check out is deleted and the file is parsed again. The least recently used entries are
+// deleted while the cache is over its byte budget.
+//
+// Layout (big-endian): MAGIC, VERSION, parser version, content hash (32 bytes), ticker count, tickers (UTF),
+// event count, int[] epoch days, byte[] types, double[] amounts, double[] shares, short[] ticker positions
+// (-1 without a ticker), CRC32
+final class ParseCache {
+    static final long MAX_BYTES = 64L << 20;
+    private static final int MAGIC = 0x49545045; // ITPE
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".events";
+    private static final EventType[] TYPES = EventType.values();
+
+    private final Path folder;
+    private final long maxBytes;
+    private final byte[] tickerMappingDigest;
+
+    ParseCache(Path folder, long maxBytes) {
+        this(folder, maxBytes, TickerRepository.getMappingDigest());
+    }
+
+    ParseCache(Path folder, long maxBytes, byte[] tickerMappingDigest) {
+        this.folder = folder;
+        this.maxBytes = maxBytes;
+        this.tickerMappingDigest = tickerMappingDigest;
+    }
+
+    // Events of the transaction file in date order, parsed only when the cache has no entry for its content
+    EventStore read(Path path, int year) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        byte[] key = hash(content);
+        Path entry = folder.resolve(hex(key) + SUFFIX);
+        EventStore events = readEntry(entry, key, year);
+        if (events != null) {
+            Metrics.PARSE_CACHE_HITS.increment();
+            touch(entry);
+            return events;
+        }
+        Metrics.PARSE_CACHE_MISSES.increment();
+        TransactionHistoryReader reader = TransactionHistoryReader.ordered(ByteBuffer.wrap(content), year);
+        EventStore.Builder builder = new EventStore.Builder();
+        while (reader.next())
+            builder.add(reader.getEpochDay(), reader.getType(), reader.getAmount(), reader.getShares(), year, reader.getTicker());
+        events = builder.build(false);
+        writeEntry(entry, key, events);
+        evict();
+        return events;
+    }
+
+    // Null when there is no entry, and when the entry is damaged, after deleting it
+    private EventStore readEntry(Path entry, byte[] key, int year) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            return corrupt(entry, e.toString());
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (bytes.length < 4)
+                return corrupt(entry, "truncated");
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 4);
+            if (in.getInt(bytes.length - 4) != (int) crc.getValue())
+                return corrupt(entry, "CRC mismatch");
+            byte[] hash = new byte[key.length];
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != TransactionHistoryReader.VERSION)
+                return corrupt(entry, "unknown format");
+            in.get(hash);
+            if (!Arrays.equals(hash, key))
+                return corrupt(entry, "hash mismatch");
+
+            String[] tickers = new String[in.getInt()];
+            for (int t = 0; t < tickers.length; t++) {
+                byte[] name = new byte[in.getShort() & 0xFFFF];
+                in.get(name);
+                tickers[t] = new String(name, StandardCharsets.UTF_8);
+            }
+            int n = in.getInt();
+            int[] epochDays = new int[n];
+            in.asIntBuffer().get(epochDays);
+            in.position(in.position() + 4 * n);
+            byte[] types = new byte[n];
+            in.get(types);
+            double[] amounts = new double[n];
+            in.asDoubleBuffer().get(amounts);
+            in.position(in.position() + 8 * n);
+            double[] shares = new double[n];
+            in.asDoubleBuffer().get(shares);
+            in.position(in.position() + 8 * n);
+            EventStore.Builder builder = new EventStore.Builder(n);
+            for (int i = 0; i < n; i++) {
+                short ticker = in.getShort();
+                if (types[i] < 0 || types[i] >= TYPES.length)
+                    return corrupt(entry, "event type " + types[i]);
+                builder.add(epochDays[i], TYPES[types[i]], amounts[i], shares[i], year, ticker < 0 ? null : tickers[ticker]);
+            }
+            if (in.remaining() != 4)
+                return corrupt(entry, "trailing bytes");
+            return builder.build(false);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return corrupt(entry, e.toString());
+        }
+    }
+
+    private static EventStore corrupt(Path entry, String reason) {
+        Metrics.PARSE_CACHE_CORRUPT.increment();
+        System.err.println("Discarding parse cache entry " + entry.getFileName() + ": " + reason);
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException e) {
+            // Overwritten once the file is parsed again
+        }
+        return null;
+    }
+
+    // Written to a temporary file and moved into place, so a reader never sees half an entry
+    private void writeEntry(Path entry, byte[] key, EventStore events) throws IOException {
+        Files.createDirectories(folder);
+        Map<String, Short> tickers = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            String ticker = events.getTicker(i);
+            if (ticker != null && !tickers.containsKey(ticker))
+                tickers.put(ticker, (short) tickers.size());
+        }
+        Path temp = Files.createTempFile(folder, entry.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(Files.newOutputStream(temp), crc)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(TransactionHistoryReader.VERSION);
+                out.write(key);
+                out.writeInt(tickers.size());
+                for (String ticker : tickers.keySet()) {
+                    byte[] name = ticker.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(name.length);
+                    out.write(name);
+                }
+                int n = events.size();
+                out.writeInt(n);
+                for (int i = 0; i < n; i++)
+                    out.writeInt(events.getEpochDay(i));
+                for (int i = 0; i < n; i++)
+                    out.writeByte(events.getTypeOrdinal(i));
+                for (int i = 0; i < n; i++)
+                    out.writeDouble(events.getAmount(i));
+                for (int i = 0; i < n; i++)
+                    out.writeDouble(events.getShares(i));
+                for (int i = 0; i < n; i++) {
+                    String ticker = events.getTicker(i);
+                    out.writeShort(ticker == null ? -1 : tickers.get(ticker));
+                }
+                // The checksum of everything above, the stream is flushed before it is read
+                out.flush();
+                out.writeInt((int) crc.getValue());
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Marks the entry as recently used for eviction
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only makes the entry look older than it is
+        }
+    }
+
+    // Deletes the least recently used entries until the cache fits its budget
+    private synchronized void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(folder)) {
+            entries = stream.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).collect(Collectors.toList());
+        }
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, Long> used = new HashMap<>();
+        long total = 0;
+        for (Path entry : entries) {
+            try {
+                sizes.put(entry, Files.size(entry));
+                used.put(entry, Files.getLastModifiedTime(entry).toMillis());
+                total += sizes.get(entry);
+            } catch (NoSuchFileException e) {
+                // Evicted or discarded meanwhile
+            }
+        }
+        List<Path> oldestFirst = new ArrayList<>(sizes.keySet());
+        oldestFirst.sort(Comparator.comparingLong(used::get));
+        for (Path entry : oldestFirst) {
+            if (total <= maxBytes)
+                return;
+            Files.deleteIfExists(entry);
+            total -= sizes.get(entry);
+            Metrics.PARSE_CACHE_EVICTIONS.increment();
+        }
+    }
+
+    private byte[] hash(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(4).putInt(TransactionHistoryReader.VERSION).array());
+            digest.update(tickerMappingDigest);
+            return digest.digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes)
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example;
+
+import org.example.dtos.Lot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lots of all the investments of an account, one FIFO ledger per ticker as sales only consume lots of the ticker
+// that was sold. Lots are listed ticker by ticker in the order each ticker was first acquired. Shares are micro-shares.
+final class Portfolio {
+    private final Map<String, LotLedger> ledgers = new LinkedHashMap<>();
+
+    interface DividendAllocation {
+        void accept(Lot lot, long microShares, long totalMicroShares);
+    }
+
+    void add(Lot lot) {
+        ledgers.computeIfAbsent(lot.getTicker(), ticker -> new LotLedger()).add(lot);
+    }
+
+    void sell(String ticker, long microShares, boolean beforeCY, LotLedger.SaleAllocation allocation) {
+        LotLedger ledger = ledgers.get(ticker);
+        if (ledger == null)
+            throw new RuntimeException("No lots found for ticker: " + ticker);
+        ledger.sell(microShares, beforeCY, allocation);
+    }
+
+    // Reports the lots a dividend of the ticker is credited to, with the shares each holds out of the total. Dividends
+    // of investments without a ticker, such as the cash reserves, are spread over the open lots of all tickers. A ticker
+    // sold out before its dividend was paid goes to its lots held in the calendar year, never to other tickers.
+    void allocateDividend(String ticker, DividendAllocation allocation) {
+        if (ticker == null) {
+            long openShares = getOpenShares();
+            for (Lot lot : getOpenLots()) {
+                if (lot.isActive())
+                    allocation.accept(lot, lot.getMicroShares(), openShares);
+            }
+            return;
+        }
+        LotLedger ledger = ledgers.get(ticker);
+        if (ledger == null)
+            throw new RuntimeException("No lots found for dividend of ticker: " + ticker);
+        long openShares = ledger.getOpenShares();
+        if (openShares > 0) {
+            for (Lot lot : ledger.getOpenLots()) {
+                if (lot.isActive())
+                    allocation.accept(lot, lot.getMicroShares(), openShares);
+            }
+            return;
+        }
+        long sharesInCY = 0;
+        for (Lot lot : ledger.getLots()) {
+            if (lot.isActiveForCalendarYear())
+                sharesInCY += lot.getMicroSharesInCalendarYear();
+        }
+        if (sharesInCY == 0)
+            throw new RuntimeException("No lots of " + ticker + " held in the calendar year for its dividend");
+        for (Lot lot : ledger.getLots()) {
+            if (lot.isActiveForCalendarYear() && lot.getMicroSharesInCalendarYear() > 0)
+                allocation.accept(lot, lot.getMicroSharesInCalendarYear(), sharesInCY);
+        }
+    }
+
+    long getOpenShares(String ticker) {
+        LotLedger ledger = ledgers.get(ticker);
+        if (ledger == null)
+            throw new RuntimeException("No lots found for ticker: " + ticker);
+        return ledger.getOpenShares();
+    }
+
+    // Open shares across all tickers
+    long getOpenShares() {
+        if (ledgers.isEmpty())
+            throw new RuntimeException("No lots found");
+        long openShares = 0;
+        for (LotLedger ledger : ledgers.values())
+            openShares += ledger.getOpenShares();
+        return openShares;
+    }
+
+    List<Lot> getOpenLots(String ticker) {
+        return ledgers.get(ticker).getOpenLots();
+    }
+
+    // Open lots across all tickers
+    List<Lot> getOpenLots() {
+        List<Lot> lots = new ArrayList<>();
+        for (LotLedger ledger : ledgers.values())
+            lots.addAll(ledger.getOpenLots());
+        return lots;
+    }
+
+    // All lots including the retired ones
+    List<Lot> getLots() {
+        if (ledgers.size() == 1)
+            return ledgers.values().iterator().next().getLots();
+        List<Lot> lots = new ArrayList<>();
+        for (LotLedger ledger : ledgers.values())
+            lots.addAll(ledger.getLots());
+        return lots;
+    }
+
+    void remove(Lot lot) {
+        LotLedger ledger = ledgers.get(lot.getTicker());
+        if (ledger != null)
+            ledger.remove(lot);
+    }
+}
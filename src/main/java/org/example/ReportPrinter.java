@@ -0,0 +1,64 @@
+package org.example;
+
+import org.example.dtos.Form67Entry;
+import org.example.dtos.IncomeEntry;
+import org.example.dtos.Report;
+import org.example.dtos.TaxEntry;
+
+import java.io.PrintStream;
+import java.util.List;
+
+// Renders a Report as the text sections that are pasted into the ITR utility
+final class ReportPrinter {
+
+    private ReportPrinter() {
+    }
+
+    static void print(Report report, PrintStream out) {
+        if (report.getUnmetESPPLot() != null)
+            out.println("Unmet ESPP lot found : " + report.getUnmetESPPLot());
+
+        out.println("------------------------------- Sales ---------------------------------------");
+        out.println("Date,Amount(Foreign Currency),Amount(INR)");
+        printIncome(report.getSales(), out);
+        out.printf("sales = %.2f%n", report.getTotalSales());
+
+        out.println("------------------------------- Taxes ---------------------------------------");
+        out.println("Date,Amount(Foreign Currency),Amount(INR)");
+        printIncome(report.getTaxes(), out);
+        out.printf("Total taxes = %.2f%n", report.getTotalTaxes());
+
+        out.println("------------------------------- Dividends ---------------------------------------");
+        out.println("Date,Amount(Foreign Currency),Amount(INR)");
+        printIncome(report.getDividends(), out);
+        out.printf("Total dividends = %.2f%n", report.getTotalDividends());
+        double[] dividendsByQuarter = report.getDividendsByQuarter();
+        for (int i = 0; i < dividendsByQuarter.length; i++) {
+            out.printf("Quarter %d : %.2f%n", i + 1, dividendsByQuarter[i]);
+        }
+
+        out.println("------------------------------- Form 67 ---------------------------------------");
+        out.println("Sl. No.,Name of the country/specified territory,Please specify,Source of income,Please specify ,Income from outside India,Amount,Rate(%),Tax payable on such income under normal provisions in India,Tax payable on such income under Section 115JB/JC,Article No. of Double Taxation Avoidance Agreements,Rate of tax as per Double Taxation Avoidance Agreements(%),Amount ,Credit claimed under section 91,Total foreign tax credit claimed");
+        for (Form67Entry entry : report.getForm67()) {
+            out.printf("%d,2,,7,,%d,%d,25,%d,,10,25,%d,0,%d%n", entry.getSlNo(), entry.getIncome(), entry.getTaxPaid(),
+                    entry.getTaxPayableUnderNormalProvisions(), entry.getTaxPaid(), entry.getTaxPaid());
+        }
+
+        out.println("------------------------------- Long Term Capital Gains ---------------------------------------");
+        out.println("Cost of Acquisition with Indexation, Sale Value");
+        out.println(report.getLongTermCapitalGains().getCostOfAcquisitionWithIndexation() + ", "
+                + report.getLongTermCapitalGains().getSaleValue());
+
+        out.println("------------------------------- Foreign Assets ---------------------------------------");
+        out.println("Date, Initial Value, Peak Value, Closing value, Dividends, SaleAmount");
+        for (TaxEntry taxEntry : report.getForeignAssets()) {
+            out.println(taxEntry);
+        }
+    }
+
+    private static void printIncome(List<IncomeEntry> income, PrintStream out) {
+        for (IncomeEntry entry : income) {
+            out.printf("%s,%f,%.2f%n", entry.getDate(), entry.getAmount(), entry.getAmountInINR());
+        }
+    }
+}
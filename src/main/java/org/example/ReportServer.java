@@ -0,0 +1,305 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AllArgsConstructor;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.output.NullPrintStream;
+import org.example.dtos.Report;
+import org.example.repositories.CurrencyConverterFactory;
+import org.example.repositories.ReferenceData;
+import org.example.repositories.ReferenceDataReloader;
+import org.example.repositories.StockPriceRepository;
+import org.example.repositories.TickerRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.example.dtos.Currency.INR;
+import static org.example.dtos.Currency.USD;
+
+// Serves reports on the loopback interface so that the JVM and the reference data stay warm between requests.
+//   POST /report?year=<Accounting Year>  body is a zip of "Transaction history <year>.csv" files, or a single
+//                                         transaction history CSV whose year is given by &fileYear (default year)
+//   GET  /metrics                         request counts, latencies and queue depth
+// Reports are built on a fixed pool of workers behind a bounded queue; requests beyond that are refused with 503.
+public class ReportServer {
+    private static final int MAX_UPLOAD_BYTES = 16 << 20;
+    // Bound on the transaction files unzipped from one upload, so that a zip bomb cannot exhaust the shared heap
+    private static final int MAX_UNZIPPED_BYTES = 64 << 20;
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final ObjectMapper mapper;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    public ReportServer(int port, int threads, int queueCapacity) throws IOException {
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity));
+        this.mapper = new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Handlers run on the dispatcher thread and only hand reports over to the workers
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/report", this::submitReport);
+        server.createContext("/metrics", this::sendMetrics);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ReportServer <Port> [Threads] [Queue-Capacity]");
+            return;
+        }
+        int port = Integer.parseInt(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : threads * 16;
+
+        loadReferenceData();
+        // Reports started before a reload finish on the version they started with
+        ReferenceDataReloader.start(ReferenceDataReloader.POLL_MILLIS);
+        ReportServer reportServer = new ReportServer(port, threads, queueCapacity);
+        reportServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(reportServer::stop));
+        System.out.printf("Serving reports on http://localhost:%d/report with %d threads%n", reportServer.getPort(), threads);
+    }
+
+    static void loadReferenceData() {
+        CurrencyConverterFactory.build(USD, INR);
+        for (String ticker : TickerRepository.getTickers()) {
+            try {
+                StockPriceRepository.preload(ticker);
+            } catch (MissingResourceException e) {
+                System.out.println("Warning: no stock prices for " + ticker);
+            }
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void submitReport(HttpExchange exchange) throws IOException {
+        requests.increment();
+        long queued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWait.record(System.nanoTime() - queued);
+                inFlight.incrementAndGet();
+                Response response;
+                try {
+                    response = buildReport(exchange);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                // Recorded before replying so the metrics already include a request once its client has the response
+                latency.record(System.nanoTime() - queued);
+                if (response.status != 200)
+                    failures.increment();
+                send(exchange, response);
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, error(503, "Server is busy"));
+        }
+    }
+
+    private Response buildReport(HttpExchange exchange) {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod()))
+                return error(405, "Use POST");
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (!query.containsKey("year"))
+                return error(400, "Missing year");
+            int calendarYear = Integer.parseInt(query.get("year"));
+            byte[] upload;
+            try (InputStream in = new BoundedInputStream(exchange.getRequestBody(), MAX_UPLOAD_BYTES + 1)) {
+                upload = IOUtils.toByteArray(in);
+            }
+            if (upload.length > MAX_UPLOAD_BYTES)
+                return error(413, "Upload is larger than " + MAX_UPLOAD_BYTES + " bytes");
+            int fileYear = query.containsKey("fileYear") ? Integer.parseInt(query.get("fileYear")) : calendarYear;
+            Map<Integer, ByteBuffer> files = isZip(upload) ? unzip(upload) : Collections.singletonMap(fileYear, ByteBuffer.wrap(upload));
+
+            Report report = new FidelityParser(calendarYear, NullPrintStream.INSTANCE).buildReport(files);
+            return new Response(200, mapper.writeValueAsBytes(report));
+        } catch (UploadTooLargeException e) {
+            return error(413, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Includes NumberFormatException from the query and malformed rows
+            return error(400, e.toString());
+        } catch (RuntimeException e) {
+            return error(422, e.toString());
+        } catch (IOException e) {
+            return error(500, e.toString());
+        }
+    }
+
+    private void sendMetrics(HttpExchange exchange) throws IOException {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("requests", requests.sum());
+        metrics.put("failures", failures.sum());
+        metrics.put("rejections", rejections.sum());
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("threads", executor.getMaximumPoolSize());
+        metrics.put("latencyMs", latency.snapshot());
+        metrics.put("queueWaitMs", queueWait.snapshot());
+        metrics.put("referenceDataVersion", ReferenceData.current().getVersion());
+        send(exchange, new Response(200, mapper.writeValueAsBytes(metrics)));
+    }
+
+    private static boolean isZip(byte[] upload) {
+        return upload.length >= ZIP_MAGIC.length && Arrays.equals(Arrays.copyOf(upload, ZIP_MAGIC.length), ZIP_MAGIC);
+    }
+
+    private static Map<Integer, ByteBuffer> unzip(byte[] upload) throws IOException {
+        Map<Integer, ByteBuffer> files = new TreeMap<>();
+        long unzipped = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(upload))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                Path path = Paths.get(entry.getName());
+                if (entry.isDirectory() || !FidelityParser.isTransactionHistory(path))
+                    continue;
+                int year = FidelityParser.getFileYear(path);
+                if (files.containsKey(year))
+                    throw new IllegalArgumentException("More than one transaction history file for " + year + " in the upload");
+                // Reads at most one byte past what is left of the bound, enough to tell that it was passed
+                byte[] content = IOUtils.toByteArray(new BoundedInputStream(zip, MAX_UNZIPPED_BYTES - unzipped + 1));
+                unzipped += content.length;
+                if (unzipped > MAX_UNZIPPED_BYTES)
+                    throw new UploadTooLargeException("Upload unzips to more than " + MAX_UNZIPPED_BYTES + " bytes");
+                files.put(year, ByteBuffer.wrap(content));
+            }
+        }
+        if (files.isEmpty())
+            throw new IllegalArgumentException("No transaction history files in the upload");
+        return files;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null)
+            return query;
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0)
+                query.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+        }
+        return query;
+    }
+
+    private Response error(int status, String message) {
+        try {
+            return new Response(status, mapper.writeValueAsBytes(Collections.singletonMap("error", message)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, response.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        } catch (IOException e) {
+            // The client has gone away
+            exchange.close();
+        }
+    }
+
+    private static final class UploadTooLargeException extends RuntimeException {
+        private UploadTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Response {
+        private final int status;
+        private final byte[] body;
+    }
+
+    // Counts of durations in power of two millisecond buckets, so percentiles are upper bounds within a factor of two
+    static final class LatencyHistogram {
+        private static final int BUCKETS = 24;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+            counts.incrementAndGet(bucket);
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> snapshot() {
+            long n = count.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("count", n);
+            snapshot.put("mean", n == 0 ? 0 : totalNanos.sum() / n / 1e6);
+            snapshot.put("max", maxNanos.get() / 1e6);
+            snapshot.put("p50", percentile(n, 0.50));
+            snapshot.put("p90", percentile(n, 0.90));
+            snapshot.put("p99", percentile(n, 0.99));
+            return snapshot;
+        }
+
+        // Upper bound of the bucket holding the percentile, bucket b holds durations below 2^b ms
+        private long percentile(long n, double percentile) {
+            long rank = (long) Math.ceil(n * percentile);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS && n > 0; bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= rank)
+                    return 1L << bucket;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.example;
+
+import lombok.AllArgsConstructor;
+import org.apache.commons.io.output.NullPrintStream;
+import org.example.dtos.Event;
+import org.example.dtos.Report;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Keeps the report of a folder of transaction histories up to date while exports are added, replaced or removed.
+// Events are kept per file. Once a changed file has been quiet for the settle time only that file is parsed again,
+// its events are spliced into the ordered event list from the earliest date that differs, and the replay restarts
+// from the lot state at the start of that date's year, which every replay captures in memory.
+final class ReportWatcher {
+    static final long SETTLE_MILLIS = 100;
+    // Year, then name, so events on the same date keep a stable order across refreshes
+    private static final Comparator<Path> FILE_ORDER = Comparator.comparingInt(FidelityParser::getFileYear)
+            .thenComparing(path -> path.getFileName().toString());
+
+    private final FidelityParser parser;
+    private final LocalDate fyEndDate;
+    private final Path folder;
+    private final Path reportFile;
+    private final Path itrJsonFile;
+    private final long settleNanos;
+    // Events of each transaction file in file order
+    private final TreeMap<Path, List<Event>> fileEvents = new TreeMap<>(FILE_ORDER);
+    // Events of all files up to the FY end by date, then file, then position in the file
+    private final List<Event> events = new ArrayList<>();
+    // Lot state before the first event of each year up to the accounting year, with the position of that event
+    private final TreeMap<Integer, YearStart> yearStarts = new TreeMap<>();
+    private boolean reported;
+
+    ReportWatcher(int calendarYear, Path folder, Path itrJsonFile, long settleMillis) {
+        this.parser = new FidelityParser(calendarYear, NullPrintStream.INSTANCE);
+        this.fyEndDate = LocalDate.of(calendarYear + 1, 3, 31);
+        this.folder = folder;
+        this.reportFile = folder.resolve(String.format("Report-%d.txt", calendarYear));
+        this.itrJsonFile = itrJsonFile;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMillis);
+    }
+
+    // Writes the report and then refreshes it on every settled change until interrupted
+    void run() throws IOException, InterruptedException {
+        try (WatchService watchService = folder.getFileSystem().newWatchService()) {
+            // Registered before the first report so that no change in between is missed
+            folder.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            refresh(listFiles());
+            Map<Path, Long> pending = new HashMap<>();
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long lastChange = Collections.max(pending.values());
+                    key = watchService.poll(Math.max(0, lastChange + settleNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            // Changes were lost, so every file known before or now is checked
+                            for (Path path : listFiles())
+                                pending.put(path, System.nanoTime());
+                            for (Path path : fileEvents.keySet())
+                                pending.put(path, System.nanoTime());
+                        } else {
+                            Path path = folder.resolve((Path) event.context());
+                            if (isWatched(path))
+                                pending.put(path, System.nanoTime());
+                        }
+                    }
+                    if (!key.reset())
+                        throw new IllegalStateException("Folder is no longer accessible: " + folder);
+                }
+                // Exports are written in several steps, so changes are only read once the files are quiet
+                long now = System.nanoTime();
+                if (!pending.isEmpty() && now - Collections.max(pending.values()) >= settleNanos) {
+                    refresh(new ArrayList<>(pending.keySet()));
+                    pending.clear();
+                }
+            }
+        }
+    }
+
+    // Reads the given files again and writes the report if the events up to the FY end have changed.
+    // Returns the new report, or null if nothing changed.
+    Report refresh(Collection<Path> changed) throws IOException {
+        long start = System.nanoTime();
+        LocalDate earliest = null;
+        for (Path path : changed) {
+            List<Event> after = read(path);
+            if (after == null)
+                continue;
+            LocalDate changedFrom = firstDifference(fileEvents.getOrDefault(path, Collections.emptyList()), after);
+            if (changedFrom == null)
+                continue;
+            if (after.isEmpty())
+                fileEvents.remove(path);
+            else
+                fileEvents.put(path, after);
+            if (earliest == null || changedFrom.isBefore(earliest))
+                earliest = changedFrom;
+        }
+        if (earliest == null || earliest.isAfter(fyEndDate)) {
+            if (reported)
+                return null;
+            // The first report is written whatever the files hold
+            earliest = LocalDate.MIN;
+        }
+
+        Map.Entry<Integer, YearStart> yearStart = yearStarts.floorEntry(earliest.getYear());
+        yearStarts.tailMap(yearStart == null ? Integer.MIN_VALUE : yearStart.getKey(), yearStart == null).clear();
+        splice(earliest);
+        Report report = parser.replay(EventStore.of(events), yearStart == null ? 0 : yearStart.getValue().index,
+                yearStart == null ? null : yearStart.getValue().checkpoint,
+                (index, checkpoint) -> yearStarts.put(checkpoint.getCalendarYear(), new YearStart(index, checkpoint)));
+        write(report);
+        reported = true;
+        System.out.printf("Refreshed %s in %d ms, replayed %d of %d events%n", reportFile.getFileName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), parser.getEventCount(), events.size());
+        return report;
+    }
+
+    // Replaces the events from the given date on with those of the current files
+    private void splice(LocalDate from) {
+        int keep = 0;
+        while (keep < events.size() && events.get(keep).getDate().isBefore(from))
+            keep++;
+        events.subList(keep, events.size()).clear();
+        List<Event> tail = new ArrayList<>();
+        for (List<Event> eventsOfFile : fileEvents.values()) {
+            for (Event event : eventsOfFile) {
+                if (!event.getDate().isBefore(from) && !event.getDate().isAfter(fyEndDate))
+                    tail.add(event);
+            }
+        }
+        // Stable, so events on the same date stay in file order
+        tail.sort(Comparator.comparing(Event::getDate));
+        events.addAll(tail);
+    }
+
+    // Earliest date at which the events ordered by date differ, null if they are the same
+    static LocalDate firstDifference(List<Event> before, List<Event> after) {
+        List<Event> a = new ArrayList<>(before);
+        List<Event> b = new ArrayList<>(after);
+        a.sort(Comparator.comparing(Event::getDate));
+        b.sort(Comparator.comparing(Event::getDate));
+        int n = Math.min(a.size(), b.size());
+        for (int i = 0; i < n; i++) {
+            if (!a.get(i).equals(b.get(i)))
+                return a.get(i).getDate().isBefore(b.get(i).getDate()) ? a.get(i).getDate() : b.get(i).getDate();
+        }
+        if (a.size() != b.size())
+            return (a.size() > n ? a : b).get(n).getDate();
+        return null;
+    }
+
+    // Events of the file, empty when it was removed and null when it cannot be read yet
+    private static List<Event> read(Path path) {
+        if (!Files.isRegularFile(path))
+            return Collections.emptyList();
+        try {
+            return TransactionHistoryReader.read(path, FidelityParser.getFileYear(path));
+        } catch (IOException | RuntimeException e) {
+            // Most likely still being written, the next change to it is read again
+            System.out.println("Skipping " + path.getFileName() + " for now: " + e);
+            return null;
+        }
+    }
+
+    private void write(Report report) throws IOException {
+        Path temp = Files.createTempFile(folder, reportFile.getFileName().toString(), ".tmp");
+        try {
+            try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(temp)), false, "UTF-8")) {
+                ReportPrinter.print(report, out);
+            }
+            Files.move(temp, reportFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        if (itrJsonFile != null)
+            ItrJsonWriter.write(report, itrJsonFile);
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> stream = Files.list(folder)) {
+            return stream.filter(ReportWatcher::isWatched).collect(Collectors.toList());
+        }
+    }
+
+    // Transaction histories whose name carries a year, e.g. not partial downloads named otherwise
+    private static boolean isWatched(Path path) {
+        if (!FidelityParser.isTransactionHistory(path))
+            return false;
+        try {
+            FidelityParser.getFileYear(path);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class YearStart {
+        private final int index;
+        private final LotCheckpoint checkpoint;
+    }
+}
@@ -0,0 +1,487 @@
+package org.example;
+
+import org.example.dtos.Event;
+import org.example.dtos.EventType;
+import org.example.metrics.Metrics;
+import org.example.repositories.TickerRepository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+// Reads a Fidelity "Transaction history <year>.csv" export straight from its bytes. Rows are split on commas
+// outside double quotes, a leading BOM is skipped and the first blank line ends the transactions.
+// Dates (MMM-dd-yyyy) and amounts are parsed from the buffer, so only unexpected rows and changes of investment
+// name allocate strings.
+// A reader opened with ordered serves the rows one at a time in date order instead: opening only finds the rows and
+// their dates, and the other fields of a row are parsed when the row is reached.
+final class TransactionHistoryReader implements EventCursor {
+    // Changes whenever rows are classified differently, so that events cached from an earlier version are not used
+    static final int VERSION = 1;
+    private static final int FIELDS = 5;
+    private static final byte[][] MONTHS = bytes("Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec");
+    private static final byte[] HEADER = bytes("Transaction date")[0];
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final ByteBuffer buffer;
+    private final int year;
+    private int position;
+    // Bounds of the fields of the current row after trimming, exclusive of enclosing quotes
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private int fieldCount;
+    // Investment name of the previous row and its ticker, consecutive rows are mostly for the same investment
+    private int lastNameStart = -1;
+    private int lastNameEnd = -1;
+    private String lastTicker;
+    // Fields of the last row parsed
+    private int epochDay;
+    private EventType type;
+    private double amount;
+    private double shares;
+    private String ticker;
+    // Rows of an ordered reader as epoch day in the high half and row offset in the low half, so sorting the
+    // primitive keys keeps rows of the same date in file order
+    private long[] rows;
+    private int rowCount;
+    private int nextRow;
+    private int eventIndex = -1;
+    private int lastEpochDay = Integer.MIN_VALUE;
+
+    private TransactionHistoryReader(ByteBuffer buffer, int year) {
+        this.buffer = buffer;
+        this.year = year;
+        this.position = buffer.position();
+    }
+
+    static List<Event> read(Path path, int year) throws IOException {
+        EventStore.Builder events = new EventStore.Builder();
+        read(path, year, events);
+        return events.build(false).toEvents();
+    }
+
+    // Appends the events of the file in file order
+    static void read(Path path, int year, EventStore.Builder events) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), year, events);
+        }
+    }
+
+    static List<Event> parse(ByteBuffer buffer, int year) {
+        EventStore.Builder events = new EventStore.Builder();
+        parse(buffer, year, events);
+        return events.build(false).toEvents();
+    }
+
+    static void parse(ByteBuffer buffer, int year, EventStore.Builder events) {
+        events.ensureCapacity(events.size() + countRows(buffer));
+        new TransactionHistoryReader(buffer, year).parseAll(events);
+    }
+
+    static TransactionHistoryReader ordered(Path path, int year) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return ordered(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), year);
+        }
+    }
+
+    // Fidelity lists the newest transactions first, the rows are sorted by date once their dates are known
+    static TransactionHistoryReader ordered(ByteBuffer buffer, int year) {
+        TransactionHistoryReader reader = new TransactionHistoryReader(buffer, year);
+        reader.findRows();
+        reader.findLastEpochDay();
+        return reader;
+    }
+
+    // Upper bound of the number of rows, so that the event columns are sized once
+    private static int countRows(ByteBuffer buffer) {
+        int rows = 1;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n')
+                rows++;
+        }
+        return rows;
+    }
+
+    private void parseAll(EventStore.Builder events) {
+        int limit = buffer.limit();
+        int lines = 0;
+        while (position < limit) {
+            int lineStart = skipBOM(position);
+            if (isBlankLine(lineStart))
+                break;
+            lines++;
+            if (startsWith(lineStart, HEADER)) {
+                position = nextRow(lineStart);
+                continue;
+            }
+            position = tokenize(lineStart);
+            if (parseRow())
+                events.add(epochDay, type, amount, shares, year, ticker);
+        }
+        Metrics.LINES_PARSED.add(lines);
+        Metrics.FILES_PARSED.increment();
+    }
+
+    private void findRows() {
+        rows = new long[countRows(buffer)];
+        int limit = buffer.limit();
+        int lines = 0;
+        boolean ordered = true;
+        while (position < limit) {
+            int lineStart = skipBOM(position);
+            if (isBlankLine(lineStart))
+                break;
+            lines++;
+            if (startsWith(lineStart, HEADER)) {
+                position = nextRow(lineStart);
+                continue;
+            }
+            position = tokenize(lineStart);
+            checkFieldCount();
+            long row = (long) parseDate(starts[0], ends[0]).toEpochDay() << 32 | lineStart;
+            ordered &= rowCount == 0 || rows[rowCount - 1] < row;
+            rows[rowCount++] = row;
+        }
+        if (!ordered)
+            Arrays.sort(rows, 0, rowCount);
+        Metrics.LINES_PARSED.add(lines);
+        Metrics.FILES_PARSED.increment();
+    }
+
+    // Date of the latest event, found from the last row backwards as some rows are not events
+    private void findLastEpochDay() {
+        for (int i = rowCount - 1; i >= 0; i--) {
+            int lineStart = (int) rows[i];
+            tokenize(lineStart);
+            if (parseRow()) {
+                lastEpochDay = epochDay;
+                return;
+            }
+        }
+    }
+
+    // Moves an ordered reader to its next event, false when there are no more
+    @Override
+    public boolean next() {
+        while (nextRow < rowCount) {
+            int lineStart = (int) rows[nextRow++];
+            tokenize(lineStart);
+            if (parseRow()) {
+                eventIndex++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getPosition() {
+        return eventIndex;
+    }
+
+    @Override
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    @Override
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    // Latest date of an event in the file, Integer.MIN_VALUE when there are none
+    int getLastEpochDay() {
+        return lastEpochDay;
+    }
+
+    @Override
+    public int getYear() {
+        return year;
+    }
+
+    @Override
+    public EventType getType() {
+        return type;
+    }
+
+    @Override
+    public double getAmount() {
+        return amount;
+    }
+
+    @Override
+    public double getShares() {
+        return shares;
+    }
+
+    @Override
+    public String getTicker() {
+        return ticker;
+    }
+
+    private void checkFieldCount() {
+        if (fieldCount < FIELDS)
+            throw new IllegalArgumentException("Expected " + FIELDS + " fields but found " + fieldCount + ": " + row());
+    }
+
+    // Parses the tokenized row into the fields of the event, false for rows that are not events
+    private boolean parseRow() {
+        checkFieldCount();
+
+        LocalDate date = parseDate(starts[0], ends[0]);
+        type = getEventType(starts[1], ends[1]);
+        amount = parseNumber(starts[4], ends[4]);
+        if (amount < 0) {
+            amount = -1 * amount;
+        }
+
+        if (type.equals(EventType.REINVEST) ||
+                // TODO: Dividend whether it is against MICROSOFT CORP or FIDELITY GOVERNMENT CASH RESERVES should be treated as Dividend
+                // However there is no Tax collected by Fidelity on the dividends deposited against FIDELITY GOVERNMENT CASH RESERVES
+                contains(starts[1], ends[1], "KKR") ||
+                equals(starts[1], ends[1], "JOURNALED WIRE/CHECK FEE") || equals(starts[1], ends[1], "JOURNALED CASH WITHDRAWAL")) {
+            return false;
+        }
+
+        if (EventType.UNKNOWN.equals(type)) {
+            throw new RuntimeException("Unknown event type: " + string(starts[1], ends[1]));
+        }
+        shares = equals(starts[3], ends[3], "-") ? 0 : parseNumber(starts[3], ends[3]);
+        epochDay = (int) date.toEpochDay();
+        ticker = getTicker(starts[2], ends[2]);
+        return true;
+    }
+
+    private String getTicker(int start, int end) {
+        if (lastNameStart < 0 || !regionEquals(start, end, lastNameStart, lastNameEnd)) {
+            lastTicker = TickerRepository.getTicker(string(start, end));
+            lastNameStart = start;
+            lastNameEnd = end;
+        }
+        return lastTicker;
+    }
+
+    private EventType getEventType(int start, int end) {
+        if (equals(start, end, "DIVIDEND RECEIVED"))
+            return EventType.DIVIDEND;
+        if (equals(start, end, "NON-RESIDENT TAX") || equals(start, end, "NON-RESIDENT TAX DIVIDEND RECEIVED"))
+            return EventType.TAX;
+        if (equals(start, end, "CONVERSION SHARES DEPOSITED"))
+            return EventType.DEPOSIT;
+        if (startsWith(start, end, "YOU BOUGHT ESPP"))
+            return EventType.BUY;
+        if (startsWith(start, end, "YOU SOLD"))
+            return EventType.SELL;
+        if (startsWith(start, end, "REINVESTMENT REINVEST"))
+            return EventType.REINVEST;
+        if (startsWith(start, end, "JOURNALED SPP PURCHASE CREDIT"))
+            return EventType.ESPP;
+        return EventType.UNKNOWN;
+    }
+
+    // Splits the row starting at start into fields and returns the start of the next row
+    private int tokenize(int start) {
+        int limit = buffer.limit();
+        int i = start;
+        fieldCount = 0;
+        while (true) {
+            int fieldStart = i;
+            boolean quoted = false;
+            while (i < limit && isSpace(buffer.get(i)))
+                i++;
+            if (i < limit && buffer.get(i) == '"') {
+                quoted = true;
+                fieldStart = ++i;
+                // A doubled quote is an escaped quote inside the field
+                while (i < limit) {
+                    if (buffer.get(i) == '"') {
+                        if (i + 1 < limit && buffer.get(i + 1) == '"')
+                            i++;
+                        else
+                            break;
+                    }
+                    i++;
+                }
+            }
+            int fieldEnd = i;
+            while (i < limit && buffer.get(i) != ',' && buffer.get(i) != '\n')
+                i++;
+            if (!quoted) {
+                fieldEnd = i;
+                while (fieldStart < fieldEnd && isSpace(buffer.get(fieldStart)))
+                    fieldStart++;
+                while (fieldEnd > fieldStart && isSpace(buffer.get(fieldEnd - 1)))
+                    fieldEnd--;
+            }
+            if (fieldCount < FIELDS) {
+                starts[fieldCount] = fieldStart;
+                ends[fieldCount] = fieldEnd;
+            }
+            fieldCount++;
+            if (i >= limit)
+                return limit;
+            if (buffer.get(i) == '\n')
+                return i + 1;
+            i++;
+        }
+    }
+
+    private int nextRow(int start) {
+        int limit = buffer.limit();
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) == '\n')
+                return i + 1;
+        }
+        return limit;
+    }
+
+    private int skipBOM(int start) {
+        if (start + 2 < buffer.limit() && buffer.get(start) == (byte) 0xEF && buffer.get(start + 1) == (byte) 0xBB
+                && buffer.get(start + 2) == (byte) 0xBF)
+            return start + 3;
+        return start;
+    }
+
+    private boolean isBlankLine(int start) {
+        int limit = buffer.limit();
+        for (int i = start; i < limit && buffer.get(i) != '\n'; i++) {
+            if (!isSpace(buffer.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    // MMM-dd-yyyy with English month abbreviations
+    private LocalDate parseDate(int start, int end) {
+        if (end - start == 11 && buffer.get(start + 3) == '-' && buffer.get(start + 6) == '-') {
+            for (int month = 0; month < MONTHS.length; month++) {
+                if (startsWith(start, MONTHS[month])) {
+                    int day = digits(start + 4, start + 6);
+                    int year = digits(start + 7, start + 11);
+                    if (day > 0 && year >= 0)
+                        return LocalDate.of(year, month + 1, day);
+                }
+            }
+        }
+        String text = string(start, end);
+        throw new DateTimeParseException("Text '" + text + "' could not be parsed as MMM-dd-yyyy", text, 0);
+    }
+
+    private int digits(int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9)
+                return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Decimal number with an optional sign, ignoring '$'. Exact for up to 15 significant digits and falls back to
+    // Double.parseDouble otherwise, so the result always matches it.
+    private double parseNumber(int start, int end) {
+        boolean signed = false;
+        boolean negative = false;
+        long mantissa = 0;
+        int scale = -1;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '$')
+                continue;
+            if ((b == '-' || b == '+') && digits == 0 && scale < 0 && !signed) {
+                signed = true;
+                negative = b == '-';
+                continue;
+            }
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            if (b < '0' || b > '9' || digits == 15)
+                return Double.parseDouble(string(start, end).replace("$", ""));
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+            if (scale >= 0)
+                scale++;
+        }
+        if (digits == 0)
+            return Double.parseDouble(string(start, end).replace("$", ""));
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private boolean equals(int start, int end, String text) {
+        return end - start == text.length() && startsWith(start, end, text);
+    }
+
+    private boolean startsWith(int start, int end, String text) {
+        if (end - start < text.length())
+            return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer.get(start + i) != text.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean startsWith(int start, byte[] prefix) {
+        if (buffer.limit() - start < prefix.length)
+            return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i])
+                return false;
+        }
+        return true;
+    }
+
+    private boolean regionEquals(int start, int end, int otherStart, int otherEnd) {
+        if (end - start != otherEnd - otherStart)
+            return false;
+        for (int i = 0; i < end - start; i++) {
+            if (buffer.get(start + i) != buffer.get(otherStart + i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean contains(int start, int end, String text) {
+        for (int i = start; i + text.length() <= end; i++) {
+            if (startsWith(i, end, text))
+                return true;
+        }
+        return false;
+    }
+
+    private String string(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8).replace("\"\"", "\"");
+    }
+
+    private String row() {
+        return fieldCount == 0 ? "" : string(starts[0], ends[Math.min(fieldCount, FIELDS) - 1]);
+    }
+
+    // Same set of characters String.trim() removes
+    private static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    private static byte[][] bytes(String... values) {
+        byte[][] result = new byte[values.length][];
+        for (int i = 0; i < values.length; i++)
+            result[i] = values[i].getBytes(StandardCharsets.US_ASCII);
+        return result;
+    }
+}
@@ -0,0 +1,199 @@
+package org.example;
+
+import org.apache.commons.io.output.NullPrintStream;
+import org.example.dtos.Lot;
+import org.example.dtos.LotSelection;
+import org.example.dtos.SaleScenario;
+import org.example.dtos.ScenarioOutcome;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+import org.example.repositories.ReferenceData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.example.dtos.Currency.INR;
+import static org.example.dtos.Currency.USD;
+
+// Compares hypothetical sales after the transactions of the FY. Every scenario forks the replayed lots of its ticker
+// from an immutable snapshot, takes its shares in the order of its lot selection and is scored with the indexed cost
+// of the shares it takes, as in the LTCG of the report, and the Schedule FA values of what is left.
+// Scenarios are evaluated on a fork/join pool and ranked by tax, lowest first.
+final class WhatIfSimulator {
+    // LTCG on foreign shares with indexation, before surcharge and cess
+    static final double LTCG_RATE = 0.20;
+    private static final int SEQUENTIAL_THRESHOLD = 256;
+    private static final Comparator<ScenarioOutcome> BY_TAX = Comparator.comparingDouble(ScenarioOutcome::getTax)
+            .thenComparingDouble(ScenarioOutcome::getCapitalGain);
+
+    private final int calendarYear;
+    private final LocalDate fyStartDate;
+    private final LocalDate fyEndDate;
+    private final ReferenceData referenceData;
+    private final CurrencyConverter currencyConverter;
+    private final Map<String, LotSnapshot> holdings = new HashMap<>();
+
+    WhatIfSimulator(int calendarYear, List<Lot> lots) {
+        this.calendarYear = calendarYear;
+        this.fyStartDate = LocalDate.of(calendarYear, 4, 1);
+        this.fyEndDate = LocalDate.of(calendarYear + 1, 3, 31);
+        this.referenceData = ReferenceData.current();
+        this.currencyConverter = referenceData.getCurrencyConverter(USD, INR);
+        for (Lot lot : lots) {
+            if (lot.isActive())
+                holdings.computeIfAbsent(lot.getTicker(), ticker -> LotSnapshot.of(ticker, lots));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: WhatIfSimulator <Folder-Containing-Fidelity-Transaction-History> <Accounting Year> <Ticker> <Max-Shares> [Top]");
+            return;
+        }
+        Path folderPath = Paths.get(args[0]);
+        int calendarYear = Integer.parseInt(args[1]);
+        String ticker = args[2];
+        double maxShares = Double.parseDouble(args[3]);
+        int top = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+        FidelityParser parser = new FidelityParser(calendarYear, NullPrintStream.INSTANCE);
+        parser.buildReport(folderPath);
+        WhatIfSimulator simulator = new WhatIfSimulator(calendarYear, parser.getLots());
+        List<SaleScenario> scenarios = simulator.getScenarios(ticker, maxShares);
+        long start = System.nanoTime();
+        List<ScenarioOutcome> outcomes = simulator.rank(scenarios, ForkJoinPool.commonPool());
+        long nanos = System.nanoTime() - start;
+
+        System.out.println("------------------------------- What If ---------------------------------------");
+        System.out.println("Rank,Ticker,Date,Shares,Lot Selection,Sale Value,Cost With Indexation,Capital Gain,Tax,Initial Value Left,Closing Value Left");
+        for (int i = 0; i < Math.min(top, outcomes.size()); i++) {
+            ScenarioOutcome outcome = outcomes.get(i);
+            System.out.printf("%d, %s, %d, %d, %d, %d, %d, %d%n", i + 1, outcome.getScenario(), (int) outcome.getSaleValue(),
+                    (int) outcome.getCostOfAcquisitionWithIndexation(), (int) outcome.getCapitalGain(), (int) outcome.getTax(),
+                    (int) outcome.getInitialValueRemaining(), (int) outcome.getClosingValueRemaining());
+        }
+        System.out.printf("Scenarios = %d, Evaluated in %.1f ms%n", outcomes.size(), nanos / 1e6);
+    }
+
+    // Every weekday of the FY with a price, every whole number of shares up to maxShares or the shares held that day
+    // and every lot selection, with each lot acquired by that day as the specific lot
+    List<SaleScenario> getScenarios(String ticker, double maxShares) {
+        LotSnapshot lots = getHoldings(ticker);
+        List<SaleScenario> scenarios = new ArrayList<>();
+        for (LocalDate date = fyStartDate; !date.isAfter(fyEndDate); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY || !isPriced(ticker, date))
+                continue;
+            long epochDay = date.toEpochDay();
+            int quantities = (int) Math.min(maxShares, lots.getSharesHeldOn(epochDay));
+            for (int shares = 1; shares <= quantities; shares++) {
+                scenarios.add(new SaleScenario(ticker, date, shares, LotSelection.FIFO, -1));
+                scenarios.add(new SaleScenario(ticker, date, shares, LotSelection.HIGHEST_COST_FIRST, -1));
+                for (int lot = 0; lot < lots.size(); lot++) {
+                    if (lots.getEpochDay(lot) <= epochDay)
+                        scenarios.add(new SaleScenario(ticker, date, shares, LotSelection.SPECIFIC_LOT, lot));
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    // Outcomes of all scenarios, lowest tax first
+    List<ScenarioOutcome> rank(List<SaleScenario> scenarios, ForkJoinPool pool) {
+        ScenarioOutcome[] outcomes = new ScenarioOutcome[scenarios.size()];
+        pool.invoke(new Evaluation(scenarios, outcomes, 0, outcomes.length));
+        List<ScenarioOutcome> ranked = Arrays.asList(outcomes);
+        ranked.sort(BY_TAX);
+        return ranked;
+    }
+
+    ScenarioOutcome evaluate(SaleScenario scenario) {
+        if (scenario.getDate().isBefore(fyStartDate) || scenario.getDate().isAfter(fyEndDate))
+            throw new IllegalArgumentException("Sale is outside the FY: " + scenario);
+        LotSnapshot lots = getHoldings(scenario.getTicker());
+        double[] sharesSold = new double[lots.size()];
+        long epochDay = scenario.getDate().toEpochDay();
+        if (scenario.getLotSelection() == LotSelection.SPECIFIC_LOT && scenario.getSpecificLot() >= 0 && scenario.getSpecificLot() < lots.size()
+                && lots.getEpochDay(scenario.getSpecificLot()) > epochDay)
+            throw new IllegalArgumentException("Lot is acquired after the sale: " + scenario);
+        LotSnapshot remaining = lots.sell(scenario.getNumShares(), epochDay, getOrder(lots, scenario), sharesSold);
+
+        double costOfAcquisition = 0;
+        for (int lot = 0; lot < lots.size(); lot++) {
+            if (sharesSold[lot] > 0) {
+                int acquisitionYear = LocalDate.ofEpochDay(lots.getEpochDay(lot)).getYear();
+                costOfAcquisition += FidelityParser.calculateValueWithIndexation(sharesSold[lot] * lots.getAcquisitionPricePerShare(lot),
+                        referenceData.getCostInflation(acquisitionYear), referenceData.getCostInflation(calendarYear));
+            }
+        }
+        double saleValue = currencyConverter.convertIncome(scenario.getDate(),
+                scenario.getNumShares() * referenceData.getStockPrice(scenario.getTicker(), scenario.getDate()));
+        double capitalGain = saleValue - costOfAcquisition;
+
+        double initialValue = 0;
+        for (int lot = 0; lot < remaining.size(); lot++)
+            initialValue += remaining.getOpenShares(lot) * remaining.getAcquisitionPricePerShare(lot);
+        double closingValue = currencyConverter.convert(fyEndDate, remaining.getTotalShares() * referenceData.getStockPrice(scenario.getTicker(), fyEndDate));
+        return new ScenarioOutcome(scenario, saleValue, costOfAcquisition, capitalGain, Math.max(0, capitalGain) * LTCG_RATE,
+                initialValue, closingValue);
+    }
+
+    private LotSnapshot getHoldings(String ticker) {
+        LotSnapshot lots = holdings.get(ticker);
+        if (lots == null)
+            throw new IllegalArgumentException("No open lots for ticker: " + ticker);
+        return lots;
+    }
+
+    private static int[] getOrder(LotSnapshot lots, SaleScenario scenario) {
+        switch (scenario.getLotSelection()) {
+            case FIFO:
+                return lots.getFifoOrder();
+            case HIGHEST_COST_FIRST:
+                return lots.getHighestCostFirstOrder();
+            case SPECIFIC_LOT:
+                return lots.getSpecificLotOrder(scenario.getSpecificLot());
+            default:
+                throw new IllegalArgumentException("Unknown lot selection: " + scenario.getLotSelection());
+        }
+    }
+
+    private boolean isPriced(String ticker, LocalDate date) {
+        try {
+            currencyConverter.convertIncome(date, referenceData.getStockPrice(ticker, date));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Splits the scenarios in halves until they are small enough to evaluate in a row
+    private final class Evaluation extends RecursiveAction {
+        private final List<SaleScenario> scenarios;
+        private final ScenarioOutcome[] outcomes;
+        private final int from;
+        private final int to;
+
+        private Evaluation(List<SaleScenario> scenarios, ScenarioOutcome[] outcomes, int from, int to) {
+            this.scenarios = scenarios;
+            this.outcomes = outcomes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++)
+                    outcomes[i] = evaluate(scenarios.get(i));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Evaluation(scenarios, outcomes, from, middle), new Evaluation(scenarios, outcomes, middle, to));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//The amounts in this are all Rupees
+@Getter
+@AllArgsConstructor
+public class CapitalGains {
+    private final int costOfAcquisitionWithIndexation;
+    private final int saleValue;
+}
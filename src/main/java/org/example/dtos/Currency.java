@@ -1,5 +1,6 @@
 package org.example.dtos;
 
+// Currencies SBI publishes TT buying rates against INR for
 public enum Currency {
-    USD, INR
+    USD, INR, EUR, GBP, JPY, CHF, AUD, CAD, SGD, HKD
 }
@@ -1,12 +1,14 @@
 package org.example.dtos;
 
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 import java.time.LocalDate;
 
 @AllArgsConstructor
 @Getter
+@EqualsAndHashCode
 public class Event {
     //getters for private fields
     private final LocalDate date;
@@ -14,11 +16,12 @@ public class Event {
     private final double amount; //This is in USD
     private final double shares;
     private final int year;
+    private final String ticker; //null when the investment is not mapped to a ticker
 
     //to string
     @Override
     public String toString(){
-        return String.format("Date: %s, Type: %s, Shares: %s, Amount: %s, Year: %s", date, type, shares, amount, year);
+        return String.format("Date: %s, Type: %s, Ticker: %s, Shares: %s, Amount: %s, Year: %s", date, type, ticker, shares, amount, year);
     }
 
 }
@@ -0,0 +1,116 @@
+package org.example.dtos;
+
+import java.math.RoundingMode;
+
+// Quantities of the lot engine held as whole numbers in longs: shares in micro-shares, USD in cents and INR in paise.
+// Sums and comparisons of these are exact, so a lot sold down to nothing is at exactly zero and totals added up in
+// different orders agree. Values enter from the doubles of parsing and currency conversion, and leave as the whole
+// rupees of the report, each time with an explicit rounding mode. Nothing here allocates.
+public final class FixedPoint {
+    public static final long MICROS_PER_SHARE = 1_000_000;
+    public static final long CENTS_PER_DOLLAR = 100;
+    public static final long PAISE_PER_RUPEE = 100;
+    // The ITR schedules take whole rupees, and the report has always dropped the fraction
+    public static final RoundingMode REPORTED_RUPEES = RoundingMode.DOWN;
+
+    private FixedPoint() {
+    }
+
+    public static long toMicroShares(double shares) {
+        return round(shares * MICROS_PER_SHARE, RoundingMode.HALF_EVEN);
+    }
+
+    public static double toShares(long microShares) {
+        return (double) microShares / MICROS_PER_SHARE;
+    }
+
+    public static long toCents(double dollars) {
+        return round(dollars * CENTS_PER_DOLLAR, RoundingMode.HALF_EVEN);
+    }
+
+    public static long toPaise(double rupees) {
+        return round(rupees * PAISE_PER_RUPEE, RoundingMode.HALF_EVEN);
+    }
+
+    public static double toRupees(long paise) {
+        return (double) paise / PAISE_PER_RUPEE;
+    }
+
+    // Whole rupees of an amount in paise
+    public static int toRupees(long paise, RoundingMode mode) {
+        return Math.toIntExact(scale(paise, 1, PAISE_PER_RUPEE, mode));
+    }
+
+    // Whole rupees of an amount in rupees, taken to the paisa first so that drift below a paisa is not truncated
+    public static int toRupees(double rupees, RoundingMode mode) {
+        return toRupees(toPaise(rupees), mode);
+    }
+
+    // value * numerator / denominator without intermediate rounding, then rounded as given
+    public static long scale(long value, long numerator, long denominator, RoundingMode mode) {
+        if (denominator == 0)
+            throw new ArithmeticException("Division by zero");
+        long product = Math.multiplyExact(value, numerator);
+        long quotient = product / denominator;
+        long remainder = product % denominator;
+        if (remainder == 0)
+            return quotient;
+        int sign = (product < 0) == (denominator < 0) ? 1 : -1;
+        // Twice the remainder against the denominator places the exact result against the halfway point
+        long twiceRemainder = Math.abs(remainder) * 2;
+        long absDenominator = Math.abs(denominator);
+        boolean awayFromZero;
+        switch (mode) {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+                awayFromZero = twiceRemainder >= absDenominator;
+                break;
+            case HALF_DOWN:
+                awayFromZero = twiceRemainder > absDenominator;
+                break;
+            case HALF_EVEN:
+                awayFromZero = twiceRemainder > absDenominator || (twiceRemainder == absDenominator && (quotient & 1) != 0);
+                break;
+            default:
+                throw new ArithmeticException("Rounding necessary for " + value + " * " + numerator + " / " + denominator);
+        }
+        return awayFromZero ? quotient + sign : quotient;
+    }
+
+    // A double rounded to a whole number as given
+    public static long round(double value, RoundingMode mode) {
+        if (Double.isNaN(value) || Math.abs(value) >= 0x1p63)
+            throw new ArithmeticException("Out of the range of fixed point: " + value);
+        switch (mode) {
+            case UP:
+                return (long) (value < 0 ? Math.floor(value) : Math.ceil(value));
+            case DOWN:
+                return (long) value;
+            case CEILING:
+                return (long) Math.ceil(value);
+            case FLOOR:
+                return (long) Math.floor(value);
+            case HALF_UP:
+                return (long) (Math.signum(value) * Math.floor(Math.abs(value) + 0.5));
+            case HALF_DOWN:
+                return (long) (Math.signum(value) * Math.ceil(Math.abs(value) - 0.5));
+            case HALF_EVEN:
+                return (long) Math.rint(value);
+            default:
+                if (value != Math.rint(value))
+                    throw new ArithmeticException("Rounding necessary for " + value);
+                return (long) value;
+        }
+    }
+}
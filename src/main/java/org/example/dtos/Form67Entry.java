@@ -0,0 +1,14 @@
+package org.example.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//One dividend row of Form 67, all amounts are rounded Rupees
+@Getter
+@AllArgsConstructor
+public class Form67Entry {
+    private final int slNo;
+    private final int income;
+    private final int taxPaid;
+    private final int taxPayableUnderNormalProvisions;
+}
@@ -0,0 +1,15 @@
+package org.example.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+//A sale, tax or dividend of the FY with its amount converted at the income rate
+@Getter
+@AllArgsConstructor
+public class IncomeEntry {
+    private final LocalDate date;
+    private final double amount; //This is in USD
+    private final double amountInINR;
+}
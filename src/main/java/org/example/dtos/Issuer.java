@@ -0,0 +1,17 @@
+package org.example.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Details of the company behind a ticker as Schedule FA asks for them
+@Getter
+@AllArgsConstructor
+public class Issuer {
+    private final String ticker;
+    private final String name;
+    private final String address;
+    private final String zipCode;
+    private final String countryCode;
+    private final String countryName;
+    private final String nature;
+}
@@ -4,81 +4,96 @@ import lombok.*;
 
 import java.time.LocalDate;
 
-//All amounts in this are in INR
+import static org.example.dtos.FixedPoint.toRupees;
+import static org.example.dtos.FixedPoint.toShares;
+
+//All amounts in this are in INR, shares are in micro-shares and amounts in paise or cents (see FixedPoint)
 @Getter
 public class Lot {
+    private final String ticker;
     @Setter
     private LocalDate dateOfAcquiring;
-    private final double numSharesAtAcquisition;
+    private final long microSharesAtAcquisition;
     private final double acquisitionPricePerShare;
-    private double numSharesInCalendarYear;
+    private long microSharesInCalendarYear;
     @Setter
     private boolean activeForCalendarYear;
-    private double numShares;
+    private long microShares;
     private boolean active = true;
-    private double dividends;
-    private double saleAmount;
+    private long dividendsInPaise;
+    private long saleAmountInPaise;
 
-    private double sharesSold;
-    private final double acquisitionCostIn$;
+    private long microSharesSold;
+    private final long acquisitionCostInCents;
 
-    public Lot(LocalDate dateOfAcquiring, double numSharesAtAcquisition, double acquisitionPrice, double acquisitionCostIn$,
+    public Lot(String ticker, LocalDate dateOfAcquiring, long microSharesAtAcquisition, double acquisitionPrice, long acquisitionCostInCents,
                boolean activeForCalendarYear){
+        this.ticker = ticker;
         this.dateOfAcquiring = dateOfAcquiring;
-        this.numSharesAtAcquisition = numSharesAtAcquisition;
+        this.microSharesAtAcquisition = microSharesAtAcquisition;
         this.acquisitionPricePerShare = acquisitionPrice;
-        this.numSharesInCalendarYear = numSharesAtAcquisition;
-        this.numShares = numSharesAtAcquisition;
-        this.dividends = 0;
-        this.saleAmount = 0;
-        this.sharesSold = 0;
-        this.acquisitionCostIn$ = acquisitionCostIn$;
+        this.microSharesInCalendarYear = microSharesAtAcquisition;
+        this.microShares = microSharesAtAcquisition;
+        this.dividendsInPaise = 0;
+        this.saleAmountInPaise = 0;
+        this.microSharesSold = 0;
+        this.acquisitionCostInCents = acquisitionCostInCents;
         this.activeForCalendarYear = activeForCalendarYear;
     }
 
+    // Rebuilds a lot that still holds microShares at the start of a calendar year, before any sales or dividends of the FY
+    public static Lot restore(String ticker, LocalDate dateOfAcquiring, long microSharesAtAcquisition, double acquisitionPrice,
+                              long acquisitionCostInCents, long microShares){
+        Lot lot = new Lot(ticker, dateOfAcquiring, microSharesAtAcquisition, acquisitionPrice, acquisitionCostInCents, microShares != 0);
+        lot.microShares = microShares;
+        lot.microSharesInCalendarYear = microShares;
+        lot.active = microShares != 0;
+        return lot;
+    }
+
     //to string
     @Override
     public String toString(){
-        return String.format("%s, %s, %s, %s, %s, %s", dateOfAcquiring, numSharesAtAcquisition, acquisitionPricePerShare, numSharesInCalendarYear, dividends, saleAmount);
+        return String.format("%s, %s, %s, %s, %s, %s", dateOfAcquiring, toShares(microSharesAtAcquisition), acquisitionPricePerShare,
+                toShares(microSharesInCalendarYear), toRupees(dividendsInPaise), toRupees(saleAmountInPaise));
     }
 
-    public void incrementSharesSold(double sharesSold){
-        this.sharesSold += sharesSold;
+    public void incrementSharesSold(long microShares){
+        this.microSharesSold += microShares;
     }
 
-    private void decrementSharesInCY(double numShares){
+    private void decrementSharesInCY(long microShares){
         if(!activeForCalendarYear){
             System.out.println("Warning: decrementSharesInCY called when not supposed to");
             return;
         }
 
-        if(numSharesInCalendarYear < numShares)
+        if(microSharesInCalendarYear < microShares)
             throw new RuntimeException("Cannot decrement more shares than present in the lot");
-        this.numSharesInCalendarYear -= numShares;
-        if(this.numSharesInCalendarYear == 0)
+        this.microSharesInCalendarYear -= microShares;
+        if(this.microSharesInCalendarYear == 0)
             this.activeForCalendarYear = false;
     }
 
-    public void incrementDividends(double dividends){
-        this.dividends += dividends;
+    public void incrementDividends(long paise){
+        this.dividendsInPaise += paise;
     }
 
-    public void incrementSales(double saleAmount){
-        if(saleAmount == 0.0)
+    public void incrementSales(long paise){
+        if(paise == 0)
             throw new RuntimeException("Amount is zero");
-        this.saleAmount += saleAmount;
+        this.saleAmountInPaise += paise;
     }
 
-    public void decrementShares(double numShares, boolean beforeCY){
-        if(this.numShares < numShares)
+    public void decrementShares(long microShares, boolean beforeCY){
+        if(this.microShares < microShares)
             throw new RuntimeException("Cannot decrement more shares than present in the lot");
-        this.numShares -= numShares;
-        if(this.numShares == 0)
+        this.microShares -= microShares;
+        if(this.microShares == 0)
             this.active = false;
 
         if(beforeCY){
-            decrementSharesInCY(numShares);
+            decrementSharesInCY(microShares);
         }
     }
 }
-
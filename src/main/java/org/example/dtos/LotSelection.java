@@ -0,0 +1,6 @@
+package org.example.dtos;
+
+// Order in which a sale takes shares out of the open lots of a ticker
+public enum LotSelection {
+    FIFO, SPECIFIC_LOT, HIGHEST_COST_FIRST
+}
@@ -0,0 +1,24 @@
+package org.example.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+//Everything the ITR needs for one account and accounting year, in the order the sections are printed
+@Getter
+@AllArgsConstructor
+public class Report {
+    private final int calendarYear;
+    private final String unmetESPPLot; //null when every ESPP purchase was credited
+    private final List<IncomeEntry> sales;
+    private final double totalSales;
+    private final List<IncomeEntry> taxes;
+    private final double totalTaxes;
+    private final List<IncomeEntry> dividends;
+    private final double totalDividends;
+    private final double[] dividendsByQuarter;
+    private final List<Form67Entry> form67;
+    private final CapitalGains longTermCapitalGains;
+    private final List<TaxEntry> foreignAssets;
+}
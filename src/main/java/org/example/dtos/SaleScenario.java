@@ -0,0 +1,23 @@
+package org.example.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+//A hypothetical sale after the transactions of the FY
+@Getter
+@AllArgsConstructor
+public class SaleScenario {
+    private final String ticker;
+    private final LocalDate date;
+    private final double numShares;
+    private final LotSelection lotSelection;
+    private final int specificLot; //position among the open lots of the ticker sold first, -1 unless SPECIFIC_LOT
+
+    @Override
+    public String toString(){
+        String selection = lotSelection == LotSelection.SPECIFIC_LOT ? lotSelection + "(" + specificLot + ")" : lotSelection.toString();
+        return String.format("%s, %s, %s, %s", ticker, date, numShares, selection);
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//The amounts in this are all Rupees
+@Getter
+@AllArgsConstructor
+public class ScenarioOutcome {
+    private final SaleScenario scenario;
+    private final double saleValue;
+    private final double costOfAcquisitionWithIndexation;
+    private final double capitalGain;
+    private final double tax;
+    private final double initialValueRemaining; //Schedule FA initial value of the lots left open
+    private final double closingValueRemaining; //Schedule FA closing value of the shares left at the FY end
+}
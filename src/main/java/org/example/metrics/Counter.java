@@ -0,0 +1,33 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// A process wide count, cheap to increment from many threads
+public final class Counter {
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    void reset() {
+        value.reset();
+    }
+}
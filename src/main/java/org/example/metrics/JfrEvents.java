@@ -0,0 +1,65 @@
+package org.example.metrics;
+
+import jdk.jfr.*;
+
+import java.util.Map;
+
+// JFR events for phases and counters. Only loaded when the JVM has JFR, see Metrics.JFR_AVAILABLE.
+final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    @Name("org.example.Phase")
+    @Label("Phase")
+    @Category("ITR Helper")
+    @Description("One execution of a timed phase")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    @Name("org.example.Counter")
+    @Label("Counter")
+    @Category("ITR Helper")
+    @Period("1 s")
+    @StackTrace(false)
+    static class CounterEvent extends Event {
+        @Label("Counter")
+        String counter;
+        @Label("Value")
+        long value;
+    }
+
+    static Object beginPhase(String name) {
+        PhaseEvent event = new PhaseEvent();
+        event.phase = name;
+        event.begin();
+        return event;
+    }
+
+    static void endPhase(Object phaseEvent, long allocatedBytes) {
+        PhaseEvent event = (PhaseEvent) phaseEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    // Samples every counter while a recording has the counter event enabled
+    static void registerCounters() {
+        FlightRecorder.addPeriodicEvent(CounterEvent.class, () -> {
+            for (Map.Entry<String, Long> counter : Metrics.getCounters().entrySet()) {
+                CounterEvent event = new CounterEvent();
+                event.counter = counter.getKey();
+                event.value = counter.getValue();
+                event.commit();
+            }
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.metrics;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Process wide instrumentation: phase wall time and bytes allocated by the thread running the phase, and counters
+// for parsing, replay and reference data lookups. Recording is always on as it costs an adder increment per
+// count; dump writes everything as JSON. When the JVM has JFR, phases are also JFR events and counters are
+// sampled into a periodic JFR event, so they show up in any recording.
+public final class Metrics {
+    static final boolean JFR_AVAILABLE = isJfrAvailable();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION_TRACKING = enableAllocationTracking();
+
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, PhaseStats> phases = new ConcurrentHashMap<>();
+
+    public static final Counter LINES_PARSED = counter("parser.lines");
+    public static final Counter FILES_PARSED = counter("parser.files");
+    public static final Counter CURRENCY_MISSES = counter("currency.misses");
+    public static final Counter CURRENCY_CROSS_RATES = counter("currency.crossRates");
+    public static final Counter STOCK_PRICE_FALLBACKS = counter("stockPrice.fallbacks");
+    public static final Counter STOCK_PRICE_MISSES = counter("stockPrice.misses");
+    public static final Counter PRICE_CACHE_HITS = counter("priceCache.hits");
+    public static final Counter PRICE_CACHE_MISSES = counter("priceCache.misses");
+    public static final Counter PRICE_CACHE_EVICTIONS = counter("priceCache.evictions");
+    public static final Counter SNAPSHOT_LOADS = counter("referenceData.snapshotLoads");
+    public static final Counter TEXT_LOADS = counter("referenceData.textLoads");
+    public static final Counter REFERENCE_DATA_RELOADS = counter("referenceData.reloads");
+    public static final Counter PARSE_CACHE_HITS = counter("parseCache.hits");
+    public static final Counter PARSE_CACHE_MISSES = counter("parseCache.misses");
+    public static final Counter PARSE_CACHE_CORRUPT = counter("parseCache.corrupt");
+    public static final Counter PARSE_CACHE_EVICTIONS = counter("parseCache.evictions");
+
+    static {
+        if (JFR_AVAILABLE)
+            JfrEvents.registerCounters();
+    }
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    // Use with try-with-resources around the work of the phase
+    public static Phase phase(String name) {
+        return new Phase(phases.computeIfAbsent(name, PhaseStats::new));
+    }
+
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        phases.values().forEach(PhaseStats::reset);
+    }
+
+    static Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Counter counter : counters.values())
+            values.put(counter.getName(), counter.get());
+        return values;
+    }
+
+    public static void dump(OutputStream out) throws IOException {
+        JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.useDefaultPrettyPrinter();
+        json.writeStartObject();
+        json.writeObjectFieldStart("phases");
+        for (PhaseStats stats : new TreeMap<>(phases).values()) {
+            json.writeObjectFieldStart(stats.getName());
+            json.writeNumberField("count", stats.getCount());
+            json.writeNumberField("wallMs", stats.getNanos() / 1e6);
+            if (ALLOCATION_TRACKING)
+                json.writeNumberField("allocatedBytes", stats.getAllocatedBytes());
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+        json.writeObjectFieldStart("counters");
+        for (Map.Entry<String, Long> counter : getCounters().entrySet())
+            json.writeNumberField(counter.getKey(), counter.getValue());
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeRaw(System.lineSeparator());
+        json.close();
+        out.flush();
+    }
+
+    // Bytes allocated so far by the current thread, -1 when the JVM does not track it
+    static long getAllocatedBytes() {
+        if (!ALLOCATION_TRACKING)
+            return -1;
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static boolean enableAllocationTracking() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean))
+            return false;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        if (!threads.isThreadAllocatedMemorySupported())
+            return false;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return true;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
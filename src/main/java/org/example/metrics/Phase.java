@@ -0,0 +1,26 @@
+package org.example.metrics;
+
+// Times one execution of a named phase on the current thread, from creation until close
+public final class Phase implements AutoCloseable {
+    private final PhaseStats stats;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+    // A JFR event when JFR is available, kept untyped so that this class loads without it
+    private final Object jfrEvent;
+
+    Phase(PhaseStats stats) {
+        this.stats = stats;
+        this.jfrEvent = Metrics.JFR_AVAILABLE ? JfrEvents.beginPhase(stats.getName()) : null;
+        this.startAllocatedBytes = Metrics.getAllocatedBytes();
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        long nanos = System.nanoTime() - startNanos;
+        long allocatedBytes = Metrics.getAllocatedBytes() - startAllocatedBytes;
+        stats.record(nanos, allocatedBytes);
+        if (jfrEvent != null)
+            JfrEvents.endPhase(jfrEvent, allocatedBytes);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Totals over all executions of a phase
+final class PhaseStats {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    PhaseStats(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, long allocatedBytes) {
+        this.count.increment();
+        this.nanos.add(nanos);
+        // Negative when allocation tracking is not supported
+        if (allocatedBytes > 0)
+            this.allocatedBytes.add(allocatedBytes);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getNanos() {
+        return nanos.sum();
+    }
+
+    long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    void reset() {
+        count.reset();
+        nanos.reset();
+        allocatedBytes.reset();
+    }
+}
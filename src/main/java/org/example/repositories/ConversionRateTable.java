@@ -0,0 +1,115 @@
+package org.example.repositories;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.example.repositories.CurrencyConverterFactory.FALLBACK_DAYS;
+
+// Conversion rates of one currency pair compiled into a dense array indexed by epoch day. A day without a
+// published rate carries the latest rate at most FALLBACK_DAYS old and is NaN beyond that. Income is converted
+// at the rate of the last day of the previous month, so that rate is also kept per month.
+final class ConversionRateTable {
+    private final int firstEpochDay;
+    private final double[] rates;
+    // Indexed by months since firstMonth, the rate of the last day of the month before
+    private final int firstMonth;
+    private final double[] incomeRates;
+
+    private ConversionRateTable(int firstEpochDay, double[] rates) {
+        this.firstEpochDay = firstEpochDay;
+        this.rates = rates;
+
+        LocalDate first = LocalDate.ofEpochDay(firstEpochDay);
+        LocalDate last = LocalDate.ofEpochDay(firstEpochDay + rates.length - 1);
+        this.firstMonth = monthIndex(first) + 1;
+        this.incomeRates = new double[Math.max(0, monthIndex(last) + 1 - firstMonth + 1)];
+        for (int i = 0; i < incomeRates.length; i++) {
+            int month = firstMonth + i;
+            LocalDate lastDayOfPreviousMonth = LocalDate.of(month / 12, month % 12 + 1, 1).minusDays(1);
+            incomeRates[i] = getRate(lastDayOfPreviousMonth.toEpochDay());
+        }
+    }
+
+    // Takes the first size entries in any order. Zero rates are treated as missing and a repeated day keeps the later rate.
+    static ConversionRateTable of(int[] epochDays, double[] rates, int size) {
+        if (size == 0)
+            return new ConversionRateTable(0, new double[0]);
+
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            first = Math.min(first, epochDays[i]);
+            last = Math.max(last, epochDays[i]);
+        }
+
+        double[] dense = new double[last - first + 1 + FALLBACK_DAYS];
+        Arrays.fill(dense, Double.NaN);
+        for (int i = 0; i < size; i++) {
+            if (rates[i] != 0)
+                dense[epochDays[i] - first] = rates[i];
+        }
+
+        int daysSinceRate = FALLBACK_DAYS + 1;
+        double rate = Double.NaN;
+        for (int i = 0; i < dense.length; i++) {
+            if (!Double.isNaN(dense[i])) {
+                rate = dense[i];
+                daysSinceRate = 0;
+            } else if (++daysSinceRate <= FALLBACK_DAYS) {
+                dense[i] = rate;
+            }
+        }
+        return new ConversionRateTable(first, dense);
+    }
+
+    // Rebuilds a table from the dense rates of another, as stored in the reference data snapshot
+    static ConversionRateTable ofDense(int firstEpochDay, double[] rates) {
+        return new ConversionRateTable(firstEpochDay, rates);
+    }
+
+    // Rates of the opposite pair, 1 / rate
+    ConversionRateTable inverse() {
+        double[] inverted = new double[rates.length];
+        for (int i = 0; i < rates.length; i++)
+            inverted[i] = 1 / rates[i];
+        return new ConversionRateTable(firstEpochDay, inverted);
+    }
+
+    // Rates of from -> to through a common currency, given from -> common and common -> to. Only the days both
+    // tables cover are kept, and a day missing in either is missing in the result.
+    static ConversionRateTable cross(ConversionRateTable fromCommon, ConversionRateTable commonTo) {
+        int first = Math.max(fromCommon.firstEpochDay, commonTo.firstEpochDay);
+        int end = Math.min(fromCommon.firstEpochDay + fromCommon.rates.length, commonTo.firstEpochDay + commonTo.rates.length);
+        if (end <= first)
+            return new ConversionRateTable(0, new double[0]);
+        double[] crossed = new double[end - first];
+        for (int i = 0; i < crossed.length; i++)
+            crossed[i] = fromCommon.getRate(first + i) * commonTo.getRate(first + i);
+        return new ConversionRateTable(first, crossed);
+    }
+
+    int getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    // Dense rates from the first epoch day with the fallback applied, NaN where there is no rate
+    double[] getRates() {
+        return rates;
+    }
+
+    // NaN when no rate is available within FALLBACK_DAYS
+    double getRate(long epochDay) {
+        long i = epochDay - firstEpochDay;
+        return i < 0 || i >= rates.length ? Double.NaN : rates[(int) i];
+    }
+
+    // NaN when no rate is available for the last day of the previous month
+    double getIncomeRate(LocalDate date) {
+        int i = monthIndex(date) - firstMonth;
+        return i < 0 || i >= incomeRates.length ? Double.NaN : incomeRates[i];
+    }
+
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+}
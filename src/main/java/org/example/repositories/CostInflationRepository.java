@@ -1,43 +1,56 @@
 package org.example.repositories;
 
+import org.example.metrics.Metrics;
+
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.MissingResourceException;
-import java.util.Objects;
 
 public class CostInflationRepository {
-    private static Map<Integer, Integer> costInflationMap;
-
+    // Index of the current version of the reference data
     public static int getCostInflation(int year){
-        Map<Integer, Integer> map = getCostInflationMap();
-        if(map.containsKey(year))
-            return map.get(year);
-
-        throw new MissingResourceException("No Cost Inflation Index found for Year", "Cost Inflation", String.valueOf(year));
+        return ReferenceData.current().getCostInflation(year);
     }
 
+    static final String RESOURCE = "cost_inflation_index.csv";
 
-    // For now this tracks the Closing price
-    private static Map<Integer, Integer> getCostInflationMap() {
-        if(costInflationMap != null)
-            return costInflationMap;
-
-        costInflationMap = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(
-                StockPriceRepository.class.getResourceAsStream("/cost_inflation_index.csv"))))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] tokens = line.split(",");
-                costInflationMap.put(Integer.parseInt(tokens[0].split("-")[0]), Integer.parseInt(tokens[1]));
+    static Map<Integer, Integer> readCostInflationMap() {
+        try (InputStream in = ReferenceData.openOverride(RESOURCE)) {
+            if (in != null) {
+                Metrics.TEXT_LOADS.increment();
+                return parseCSV(in);
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Exception reading cost inflation indices. Exception : " + e.toString());
+        }
+        Map<Integer, Integer> costInflationMap = ReferenceDataSnapshot.getCostInflation();
+        if (costInflationMap != null) {
+            Metrics.SNAPSHOT_LOADS.increment();
+            return costInflationMap;
+        }
+        Metrics.TEXT_LOADS.increment();
+        try (InputStream in = CostInflationRepository.class.getResourceAsStream("/" + RESOURCE)) {
+            if (in == null)
+                throw new MissingResourceException("Cost Inflation Data missing", "Cost Inflation", "File");
+            return parseCSV(in);
         } catch (IOException e) {
             throw new RuntimeException("Exception reading stock prices. Exception : " + e.toString());
-        } catch (NullPointerException e){
-            throw new MissingResourceException("Cost Inflation Data missing", "Cost Inflation", "File");
         }
-        return costInflationMap;
+    }
+
+    static Map<Integer, Integer> parseCSV(InputStream in) throws IOException {
+        Map<Integer, Integer> costInflationMap = new HashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] tokens = line.split(",");
+            costInflationMap.put(Integer.parseInt(tokens[0].split("-")[0]), Integer.parseInt(tokens[1]));
+        }
+        return Collections.unmodifiableMap(costInflationMap);
     }
 }
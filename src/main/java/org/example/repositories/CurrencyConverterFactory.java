@@ -1,92 +1,143 @@
 package org.example.repositories;
 
 import org.example.dtos.Currency;
+import org.example.metrics.Metrics;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.MissingResourceException;
-import java.util.Objects;
 
+// TTBR rate tables per currency pair. A pair is read from currency_conversions/<FROM><TO>-TTBR.csv, from the override
+// folder of ReferenceData first and then from the classpath. SBI publishes rates against INR only, so a pair without
+// a file is derived: the inverse of the opposite pair, or the cross rate through INR. Tables, derived or read, are
+// cached per pair by each version of the reference data.
 public class CurrencyConverterFactory {
-    private static final Map<String, Map<LocalDate, Double>> currencyMap = new HashMap<>();
     public static final int FALLBACK_DAYS = 3;
+    static final String FOLDER = "currency_conversions";
+    private static final Currency BASE = Currency.INR;
 
-    //for now assuming from is always USD and to is INR
-    private static Map<LocalDate, Double> getCurrencyMap(Currency from, Currency to) {
-        String key = String.format("%s%s", from, to);
+    // Null when the pair has no rates
+    static ConversionRateTable load(ReferenceData data, Currency from, Currency to) {
+        ConversionRateTable table = readFromTTBR(from.name() + to.name());
+        if (table != null)
+            return table;
+        table = readFromTTBR(to.name() + from.name());
+        if (table != null)
+            return table.inverse();
+        if (from == BASE || to == BASE)
+            return null;
+        ConversionRateTable fromBase = data.getConversionRates(from, BASE);
+        ConversionRateTable baseTo = data.getConversionRates(BASE, to);
+        if (fromBase == null || baseTo == null)
+            return null;
+        Metrics.CURRENCY_CROSS_RATES.increment();
+        return ConversionRateTable.cross(fromBase, baseTo);
+    }
 
-        if (currencyMap.containsKey(key))
-            return currencyMap.get(key);
+    private static ConversionRateTable readFromTTBR(String key) {
+        try (InputStream in = ReferenceData.openOverride(getResource(key))) {
+            if (in != null) {
+                Metrics.TEXT_LOADS.increment();
+                return parseTTBR(in);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Exception reading Conversion Rate. Exception : " + e);
+        }
+        ConversionRateTable table = ReferenceDataSnapshot.getConversionRates(key);
+        if (table != null) {
+            Metrics.SNAPSHOT_LOADS.increment();
+            return table;
+        }
+        try (InputStream in = CurrencyConverterFactory.class.getResourceAsStream("/" + getResource(key))) {
+            if (in == null)
+                return null;
+            Metrics.TEXT_LOADS.increment();
+            return parseTTBR(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Exception reading Conversion Rate. Exception : " + e);
+        }
+    }
 
-        Map<LocalDate, Double> dateToRateMap = new HashMap<>();
-        dateToRateMap = readFromTTBR(key, dateToRateMap);
-        currencyMap.put(key, dateToRateMap);
-        return currencyMap.get(key);
+    static String getResource(String key) {
+        return String.format("%s/%s-TTBR.csv", FOLDER, key);
     }
 
-    private static Map<LocalDate, Double> readFromTTBR(String key, Map<LocalDate, Double> dateToRateMap) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(
-                StockPriceRepository.class.getResourceAsStream(String.format("/currency_conversions/%s-TTBR.csv", key)))))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] tokens = line.split(",");
-                if (!tokens[0].equals("DATE")) {
-                    String dateStr = tokens[0];
-                    LocalDateTime localDate = LocalDateTime.parse(dateStr, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-                    double usdToInr = Double.parseDouble(tokens[2]);
-                    if(usdToInr == 0)
-                        continue;
-                    dateToRateMap.put(localDate.toLocalDate(), usdToInr);
+    static ConversionRateTable parseTTBR(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        int[] epochDays = new int[1024];
+        double[] rates = new double[1024];
+        int size = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] tokens = line.split(",");
+            if (!tokens[0].equals("DATE")) {
+                String dateStr = tokens[0];
+                LocalDateTime localDate = LocalDateTime.parse(dateStr, formatter);
+                double usdToInr = Double.parseDouble(tokens[2]);
+                if(usdToInr == 0)
+                    continue;
+                if (size == epochDays.length) {
+                    epochDays = Arrays.copyOf(epochDays, size * 2);
+                    rates = Arrays.copyOf(rates, size * 2);
                 }
+                epochDays[size] = (int) localDate.toLocalDate().toEpochDay();
+                rates[size] = usdToInr;
+                size++;
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Exception reading Conversion Rate. Exception : " + e);
-        } catch (NullPointerException e) {
-            dateToRateMap = null;
         }
-        return dateToRateMap;
+        return ConversionRateTable.of(epochDays, rates, size);
     }
 
+    // Converter on the current version of the reference data
     public static CurrencyConverter build(Currency from, Currency to){
-        String key = String.format("%s%s", from, to);
-        Map<LocalDate, Double> prices = getCurrencyMap(from, to);
-        if(prices == null)
-            throw new MissingResourceException("Stock Prices not found for currencies", "Currencies", key);
-
-        return new CurrencyConverter(from, to);
+        return ReferenceData.current().getCurrencyConverter(from, to);
     }
 
     public static class CurrencyConverter{
 
-        private final Map<LocalDate, Double> map;
+        private final ConversionRateTable rates;
 
         public CurrencyConverter(Currency from, Currency to){
-            this.map = currencyMap.get(String.format("%s%s", from, to));
+            this(ReferenceData.current().getCurrencyConverter(from, to).rates);
+        }
+
+        CurrencyConverter(ConversionRateTable rates){
+            this.rates = rates;
         }
 
         public double convert(LocalDate date, double amount) {
-            int i = 0;
-            LocalDate tempDate = date;
-            while(i <= FALLBACK_DAYS){
-                if(map.containsKey(tempDate))
-                    return map.get(tempDate) * amount;
-                tempDate = tempDate.minusDays(1);
-                i++;
+            double rate = rates.getRate(date.toEpochDay());
+            if (Double.isNaN(rate)) {
+                Metrics.CURRENCY_MISSES.increment();
+                throw new MissingResourceException("No Currency Conversion found for date", "Currency", date.toString());
             }
+            return rate * amount;
+        }
 
-            throw new MissingResourceException("No Currency Conversion found for date", "Currency", date.toString());
+        // Each amount converted at the rate of the epoch day at the same position, NaN where there is no rate
+        public double[] convert(int[] epochDays, double[] amounts) {
+            double[] converted = new double[amounts.length];
+            for (int i = 0; i < amounts.length; i++)
+                converted[i] = rates.getRate(epochDays[i]) * amounts[i];
+            return converted;
         }
 
         public double convertIncome(LocalDate date, double amount) {
-            LocalDate lastDayOfPreviousMonth = date.minusMonths(1).with(TemporalAdjusters.lastDayOfMonth());
-            return convert(lastDayOfPreviousMonth, amount);
+            double rate = rates.getIncomeRate(date);
+            if (Double.isNaN(rate)) {
+                Metrics.CURRENCY_MISSES.increment();
+                LocalDate lastDayOfPreviousMonth = date.minusMonths(1).with(TemporalAdjusters.lastDayOfMonth());
+                throw new MissingResourceException("No Currency Conversion found for date", "Currency", lastDayOfPreviousMonth.toString());
+            }
+            return rate * amount;
         }
     }
 }
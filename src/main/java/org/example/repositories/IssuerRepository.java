@@ -0,0 +1,47 @@
+package org.example.repositories;
+
+import org.example.dtos.Issuer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Objects;
+
+// Schedule FA details of the issuer of each ticker, one tab separated row per ticker in issuers.tsv:
+// ticker, name, address, zip code, country code, country name, nature of entity
+public class IssuerRepository {
+
+    public static Issuer getIssuer(String ticker){
+        Issuer issuer = Holder.issuers.get(ticker);
+        if (issuer == null)
+            throw new MissingResourceException("No issuer found for ticker", "Issuer", ticker);
+        return issuer;
+    }
+
+    private static class Holder {
+        private static final Map<String, Issuer> issuers = readIssuers();
+    }
+
+    private static Map<String, Issuer> readIssuers() {
+        Map<String, Issuer> issuers = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(
+                IssuerRepository.class.getResourceAsStream("/issuers.tsv")), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split("\t");
+                if (tokens.length == 7)
+                    issuers.put(tokens[0], new Issuer(tokens[0], tokens[1], tokens[2], tokens[3], tokens[4], tokens[5], tokens[6]));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Exception reading issuers. Exception : " + e);
+        } catch (NullPointerException e){
+            throw new MissingResourceException("Issuer data missing", "Issuer", "File");
+        }
+        return Collections.unmodifiableMap(issuers);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.repositories;
+
+// Sparse table over the trading-day closes of a ticker. Built once per ticker, it answers
+// "position of the peak close within [from, to]" with two table reads. Ties resolve to the earliest position.
+final class PeakPriceIndex {
+    private final double[] closes;
+    // table[k][i] is the position of the highest close in closes[i, i + 2^k)
+    private final int[][] table;
+
+    PeakPriceIndex(double[] closes) {
+        int n = closes.length;
+        this.closes = closes;
+
+        int levels = n == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(n);
+        this.table = new int[levels][];
+        table[0] = new int[n];
+        for (int i = 0; i < n; i++)
+            table[0][i] = i;
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int[] previous = table[k - 1];
+            int[] current = new int[n - (1 << k) + 1];
+            for (int i = 0; i < current.length; i++)
+                current[i] = higher(previous[i], previous[i + half]);
+            table[k] = current;
+        }
+    }
+
+    // from and to are inclusive and from <= to
+    int getPeak(int from, int to) {
+        int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        return higher(table[k][from], table[k][to - (1 << k) + 1]);
+    }
+
+    // Approximate heap footprint of the table in bytes
+    long getWeight() {
+        long weight = 16 + 8L * table.length;
+        for (int[] level : table)
+            weight += 16 + 4L * level.length;
+        return weight;
+    }
+
+    // Prefers the left (earlier) position on ties
+    private int higher(int left, int right) {
+        return closes[left] >= closes[right] ? left : right;
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.repositories;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.example.dtos.Currency;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// One version of the reference data: cost inflation indices, TTBR conversion rates and stock prices. A published
+// version never changes. Its conversion rates and price series are loaded on first use and then kept for the
+// life of the version. ReferenceDataReloader swaps in the next version when the sources change. A run that holds
+// on to a version sees the same data throughout. Reading the current version is a plain atomic read, and loads
+// race on compare-and-set instead of locking.
+public final class ReferenceData {
+    // Folder laid out like the resources (cost_inflation_index.csv, currency_conversions/, stock_prices/) whose files
+    // are used instead of those on the classpath
+    public static final String OVERRIDE_FOLDER_PROPERTY = "itrhelper.referenceDataFolder";
+    // Marks a currency pair known to have no rates
+    private static final ConversionRateTable MISSING = ConversionRateTable.of(new int[0], new double[0], 0);
+
+    private final long version;
+    private final Map<Integer, Integer> costInflation;
+    private final Map<Currency, AtomicReferenceArray<ConversionRateTable>> conversionRates = new EnumMap<>(Currency.class);
+    private final StockPriceCache stockPrices;
+
+    private static class Holder {
+        private static final AtomicReference<ReferenceData> current = new AtomicReference<>(new ReferenceData(1, null, Collections.emptySet()));
+    }
+
+    // Carries over from the previous version whatever was loaded from sources that have not changed
+    private ReferenceData(long version, ReferenceData previous, Set<String> changedResources) {
+        this.version = version;
+        this.costInflation = CostInflationRepository.readCostInflationMap();
+        for (Currency from : Currency.values())
+            conversionRates.put(from, new AtomicReferenceArray<>(Currency.values().length));
+        this.stockPrices = new StockPriceCache(StockPriceRepository::readFromTSV, StockPriceRepository.getCacheBytes());
+        if (previous == null)
+            return;
+        // Derived pairs depend on others, so every rate is read again once any of the rate files changes
+        if (changedResources.stream().noneMatch(resource -> resource.startsWith(CurrencyConverterFactory.FOLDER))) {
+            for (Currency from : Currency.values()) {
+                for (int to = 0; to < Currency.values().length; to++)
+                    conversionRates.get(from).set(to, previous.conversionRates.get(from).get(to));
+            }
+        }
+        previous.stockPrices.forEachLoaded((ticker, series) -> {
+            if (changedResources.contains(StockPriceRepository.getResource(ticker)))
+                stockPrices.get(ticker);
+            else
+                stockPrices.put(ticker, series);
+        });
+    }
+
+    // The version in use, to be held for the length of a run
+    public static ReferenceData current() {
+        return Holder.current.get();
+    }
+
+    // A version of its own that is never made current, so what it loads is not seen by other runs
+    static ReferenceData unpublished() {
+        return new ReferenceData(1, null, Collections.emptySet());
+    }
+
+    // Makes an earlier version current again, for tests that publish versions of their own
+    static void restore(ReferenceData version) {
+        Holder.current.set(version);
+    }
+
+    // Builds the version after the current one, reading again the sources that changed, and makes it current
+    static ReferenceData publishNext(Set<String> changedResources) {
+        ReferenceData previous = current();
+        ReferenceData next = new ReferenceData(previous.version + 1, previous, changedResources);
+        if (!Holder.current.compareAndSet(previous, next))
+            throw new IllegalStateException("Reference data was published concurrently");
+        return next;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCostInflation(int year) {
+        Integer index = costInflation.get(year);
+        if (index == null)
+            throw new MissingResourceException("No Cost Inflation Index found for Year", "Cost Inflation", String.valueOf(year));
+        return index;
+    }
+
+    public CurrencyConverter getCurrencyConverter(Currency from, Currency to) {
+        if (from == to)
+            throw new IllegalArgumentException("Nothing to convert from " + from + " to itself");
+        ConversionRateTable rates = getConversionRates(from, to);
+        if (rates == null)
+            throw new MissingResourceException("Conversion rates not found for currencies", "Currencies", from.name() + to.name());
+        return new CurrencyConverter(rates);
+    }
+
+    // Null when there are no rates for the pair
+    ConversionRateTable getConversionRates(Currency from, Currency to) {
+        AtomicReferenceArray<ConversionRateTable> row = conversionRates.get(from);
+        ConversionRateTable table = row.get(to.ordinal());
+        if (table == null) {
+            // Concurrent first lookups may both load, the first to finish is kept
+            ConversionRateTable loaded = CurrencyConverterFactory.load(this, from, to);
+            row.compareAndSet(to.ordinal(), null, loaded == null ? MISSING : loaded);
+            table = row.get(to.ordinal());
+        }
+        return table == MISSING ? null : table;
+    }
+
+    public double getStockPrice(String ticker, LocalDate date) {
+        return getStockPriceSeries(ticker).getClose((int) date.toEpochDay());
+    }
+
+    // Closing prices for ascending epoch days, resolved in a single pass
+    public double[] getStockPrices(String ticker, int[] sortedEpochDays) {
+        return getStockPriceSeries(ticker).getCloses(sortedEpochDays);
+    }
+
+    public Pair<LocalDate, Double> getPeakStockPrice(String ticker, LocalDate startDate, LocalDate endDate) {
+        return getStockPriceSeries(ticker).getPeak((int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+    }
+
+    // Trading days from startDate to endDate as epoch days, with their closes at the same positions
+    public Pair<int[], double[]> getStockPriceRange(String ticker, LocalDate startDate, LocalDate endDate) {
+        return getStockPriceSeries(ticker).getRange((int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+    }
+
+    // Loads the price series of a ticker ahead of its first lookup
+    public void preload(String ticker) {
+        getStockPriceSeries(ticker);
+    }
+
+    private StockPriceSeries getStockPriceSeries(String ticker) {
+        StockPriceSeries series = stockPrices.get(ticker);
+        if (series == null)
+            throw new MissingResourceException("Stock Prices not found for ticker", "Stock", ticker);
+        return series;
+    }
+
+    static Path getOverrideFolder() {
+        String folder = System.getProperty(OVERRIDE_FOLDER_PROPERTY);
+        return folder == null ? null : Paths.get(folder);
+    }
+
+    // The resource from the override folder, null when it is not overridden
+    static InputStream openOverride(String resource) throws IOException {
+        Path folder = getOverrideFolder();
+        if (folder == null)
+            return null;
+        Path path = folder.resolve(resource);
+        return Files.isRegularFile(path) ? Files.newInputStream(path) : null;
+    }
+}
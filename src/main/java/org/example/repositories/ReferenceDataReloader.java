@@ -0,0 +1,126 @@
+package org.example.repositories;
+
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Publishes the next version of the reference data when its sources change. The sources are the override folder
+// and the classpath resources when they are plain files, as in a build tree, and not inside a jar. Every poll
+// stamps each source file with its size and modification time on a daemon thread. Only the sources whose stamp
+// changed are read again, so lookups never wait for a reload. A reload that fails, for example on a file that is
+// still being written, is retried on the next poll.
+public final class ReferenceDataReloader implements AutoCloseable {
+    public static final long POLL_MILLIS = 2000;
+    private static final String[] RESOURCES = {CostInflationRepository.RESOURCE, CurrencyConverterFactory.FOLDER, StockPriceRepository.FOLDER};
+
+    private final ScheduledExecutorService executor;
+    private Map<String, Long> stamps;
+
+    private ReferenceDataReloader(long pollMillis) {
+        this.stamps = stampSources();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reference-data-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::reloadQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static ReferenceDataReloader start(long pollMillis) {
+        return new ReferenceDataReloader(pollMillis);
+    }
+
+    // Publishes a new version if any source changed since the last check and returns the current version
+    public synchronized ReferenceData reload() {
+        Map<String, Long> next = stampSources();
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Long> stamp : next.entrySet()) {
+            if (!stamp.getValue().equals(stamps.get(stamp.getKey())))
+                changed.add(stamp.getKey());
+        }
+        for (String resource : stamps.keySet()) {
+            if (!next.containsKey(resource))
+                changed.add(resource);
+        }
+        if (changed.isEmpty())
+            return ReferenceData.current();
+        ReferenceData data = ReferenceData.publishNext(changed);
+        stamps = next;
+        Metrics.REFERENCE_DATA_RELOADS.increment();
+        return data;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            System.err.println("Reference data not reloaded: " + e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Size and modification time of each source file by resource name, combined over the override folder and the classpath
+    private static Map<String, Long> stampSources() {
+        Map<String, Long> stamps = new HashMap<>();
+        Set<Path> roots = new LinkedHashSet<>();
+        Path overrides = ReferenceData.getOverrideFolder();
+        if (overrides != null)
+            roots.add(overrides);
+        for (String resource : RESOURCES) {
+            Path path = getClasspathFile(resource);
+            if (path != null)
+                roots.add(path.getParent());
+        }
+        for (Path root : roots) {
+            for (String resource : RESOURCES) {
+                Path path = root.resolve(resource);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> files = Files.list(path)) {
+                        files.filter(Files::isRegularFile).forEach(file -> stamp(stamps, resource + "/" + file.getFileName(), file));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                } else if (Files.isRegularFile(path)) {
+                    stamp(stamps, resource, path);
+                }
+            }
+        }
+        return stamps;
+    }
+
+    private static void stamp(Map<String, Long> stamps, String resource, Path file) {
+        try {
+            long stamp = Files.getLastModifiedTime(file).toMillis() * 31 + Files.size(file);
+            stamps.merge(resource, stamp, (a, b) -> a * 31 + b);
+        } catch (IOException e) {
+            // Removed since it was listed, the next poll sees it gone
+        }
+    }
+
+    // Null when the resource is missing or inside a jar
+    private static Path getClasspathFile(String resource) {
+        URL url = ReferenceDataReloader.class.getResource("/" + resource);
+        if (url == null || !"file".equals(url.getProtocol()))
+            return null;
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+}
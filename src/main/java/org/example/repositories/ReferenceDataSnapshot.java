@@ -0,0 +1,196 @@
+package org.example.repositories;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Reference data precompiled by SnapshotCompiler into reference-data.bin on the classpath. Each text source is a
+// section of little-endian columns, so loading a ticker or a currency pair is a bulk copy instead of a parse.
+// A section is only used while the CRC32 of its text source still matches; otherwise, and when there is no
+// snapshot at all, the repositories parse the text sources as before.
+//
+// Layout: MAGIC, VERSION, FALLBACK_DAYS of the rates, section count, then per section the resource name
+// (short length + UTF-8), CRC32 of the source, kind, row count, first epoch day (rates only) and payload offset.
+// Payloads start at 8 byte boundaries:
+//   STOCK_PRICES      int[count] ascending epoch days, double[count] closes
+//   CONVERSION_RATES  double[count] dense rates from the first epoch day, NaN where there is no rate
+//   COST_INFLATION    int[count] financial years, int[count] indices
+final class ReferenceDataSnapshot {
+    static final String RESOURCE = "reference-data.bin";
+    static final int MAGIC = 0x49545253; // ITRS
+    static final int VERSION = 1;
+    static final int STOCK_PRICES = 1;
+    static final int CONVERSION_RATES = 2;
+    static final int COST_INFLATION = 3;
+
+    private final ByteBuffer buffer;
+    private final Map<String, Section> sections;
+
+    private ReferenceDataSnapshot(ByteBuffer buffer, Map<String, Section> sections) {
+        this.buffer = buffer;
+        this.sections = sections;
+    }
+
+    private static class Holder {
+        private static final ReferenceDataSnapshot snapshot = load();
+    }
+
+    // Each of these returns null when the snapshot has no fresh section for the source
+
+    static StockPriceSeries getStockPrices(String ticker) {
+        ReferenceDataSnapshot snapshot = Holder.snapshot;
+        return snapshot == null ? null : snapshot.readStockPrices(StockPriceRepository.getResource(ticker));
+    }
+
+    static ConversionRateTable getConversionRates(String key) {
+        ReferenceDataSnapshot snapshot = Holder.snapshot;
+        return snapshot == null ? null : snapshot.readConversionRates(CurrencyConverterFactory.getResource(key));
+    }
+
+    static Map<Integer, Integer> getCostInflation() {
+        ReferenceDataSnapshot snapshot = Holder.snapshot;
+        return snapshot == null ? null : snapshot.readCostInflation(CostInflationRepository.RESOURCE);
+    }
+
+    StockPriceSeries readStockPrices(String resource) {
+        Section section = getFreshSection(resource, STOCK_PRICES);
+        if (section == null)
+            return null;
+        ByteBuffer view = view(section.offset);
+        int[] epochDays = new int[section.count];
+        double[] closes = new double[section.count];
+        view.asIntBuffer().get(epochDays);
+        view.position(align(view.position() + 4 * section.count));
+        view.asDoubleBuffer().get(closes);
+        return StockPriceSeries.ofSorted(epochDays, closes);
+    }
+
+    ConversionRateTable readConversionRates(String resource) {
+        Section section = getFreshSection(resource, CONVERSION_RATES);
+        if (section == null)
+            return null;
+        double[] rates = new double[section.count];
+        view(section.offset).asDoubleBuffer().get(rates);
+        return ConversionRateTable.ofDense(section.first, rates);
+    }
+
+    Map<Integer, Integer> readCostInflation(String resource) {
+        Section section = getFreshSection(resource, COST_INFLATION);
+        if (section == null)
+            return null;
+        ByteBuffer view = view(section.offset);
+        int[] years = new int[section.count];
+        int[] indices = new int[section.count];
+        view.asIntBuffer().get(years);
+        view.position(view.position() + 4 * section.count);
+        view.asIntBuffer().get(indices);
+        Map<Integer, Integer> costInflationMap = new HashMap<>();
+        for (int i = 0; i < years.length; i++)
+            costInflationMap.put(years[i], indices[i]);
+        return Collections.unmodifiableMap(costInflationMap);
+    }
+
+    private Section getFreshSection(String resource, int kind) {
+        Section section = sections.get(resource);
+        if (section == null || section.kind != kind)
+            return null;
+        try (InputStream in = ReferenceDataSnapshot.class.getResourceAsStream("/" + resource)) {
+            return in != null && crc(in) == section.crc ? section : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ByteBuffer view(int offset) {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.position(offset);
+        return view;
+    }
+
+    // Memory-maps the snapshot when it is a plain file and reads it into memory when it is inside a jar
+    private static ReferenceDataSnapshot load() {
+        URL url = ReferenceDataSnapshot.class.getResource("/" + RESOURCE);
+        if (url == null)
+            return null;
+        try {
+            ByteBuffer buffer;
+            if ("file".equals(url.getProtocol())) {
+                try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            } else {
+                try (InputStream in = url.openStream()) {
+                    buffer = ByteBuffer.wrap(IOUtils.toByteArray(in));
+                }
+            }
+            return open(buffer);
+        } catch (IOException | URISyntaxException e) {
+            return null;
+        }
+    }
+
+    // Returns null when the buffer is not a snapshot of this version
+    static ReferenceDataSnapshot open(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != CurrencyConverterFactory.FALLBACK_DAYS)
+                return null;
+            int count = in.getInt();
+            Map<String, Section> sections = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.getShort()];
+                in.get(name);
+                Section section = new Section(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+                if (section.offset < 0 || section.offset > buffer.limit())
+                    return null;
+                sections.put(new String(name, StandardCharsets.UTF_8), section);
+            }
+            return new ReferenceDataSnapshot(buffer, sections);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    static int crc(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(chunk)) > 0)
+            crc.update(chunk, 0, read);
+        return (int) crc.getValue();
+    }
+
+    static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static final class Section {
+        private final int crc;
+        private final int kind;
+        private final int count;
+        private final int first;
+        private final int offset;
+
+        private Section(int crc, int kind, int count, int first, int offset) {
+            this.crc = crc;
+            this.kind = kind;
+            this.count = count;
+            this.first = first;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.repositories;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.example.repositories.ReferenceDataSnapshot.*;
+
+// Build step that compiles the text reference data under a resource folder into ReferenceDataSnapshot.RESOURCE.
+// Maven runs it on target/classes in the process-classes phase.
+public final class SnapshotCompiler {
+
+    private SnapshotCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: SnapshotCompiler <Resource-Folder> [Snapshot-File]");
+            return;
+        }
+        Path resourceFolder = Paths.get(args[0]);
+        Path snapshot = args.length > 1 ? Paths.get(args[1]) : resourceFolder.resolve(RESOURCE);
+        int sections = compile(resourceFolder, snapshot);
+        System.out.printf("Compiled %d reference data sources into %s%n", sections, snapshot);
+    }
+
+    // Returns the number of sections written
+    static int compile(Path resourceFolder, Path snapshot) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        Path costInflation = resourceFolder.resolve(CostInflationRepository.RESOURCE);
+        if (Files.isRegularFile(costInflation))
+            sources.add(costInflationSource(costInflation));
+        for (Path path : list(resourceFolder.resolve("currency_conversions"), "-TTBR.csv"))
+            sources.add(conversionRateSource(resourceFolder, path));
+        for (Path path : list(resourceFolder.resolve("stock_prices"), ".tsv"))
+            sources.add(stockPriceSource(resourceFolder, path));
+
+        // Header and directory first, then the payloads at 8 byte boundaries
+        int position = 16;
+        for (Source source : sources)
+            position += 2 + source.name.length + 20;
+        for (Source source : sources) {
+            source.offset = align(position);
+            position = source.offset + source.payload.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(position).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(CurrencyConverterFactory.FALLBACK_DAYS).putInt(sources.size());
+        for (Source source : sources) {
+            out.putShort((short) source.name.length).put(source.name);
+            out.putInt(source.crc).putInt(source.kind).putInt(source.count).putInt(source.first).putInt(source.offset);
+        }
+        for (Source source : sources) {
+            out.position(source.offset);
+            out.put(source.payload);
+        }
+
+        Files.createDirectories(snapshot.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(snapshot.toAbsolutePath().getParent(), RESOURCE, ".tmp");
+        Files.write(temp, out.array());
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        return sources.size();
+    }
+
+    private static Source stockPriceSource(Path resourceFolder, Path path) throws IOException {
+        byte[] text = Files.readAllBytes(path);
+        StockPriceSeries series = StockPriceRepository.parseTSV(new ByteArrayInputStream(text));
+        int n = series.size();
+        ByteBuffer payload = payload(align(4 * n) + 8 * n);
+        payload.asIntBuffer().put(series.getEpochDays());
+        payload.position(align(4 * n));
+        payload.asDoubleBuffer().put(series.getCloses());
+        return new Source(resourceFolder, path, text, STOCK_PRICES, n, 0, payload);
+    }
+
+    private static Source conversionRateSource(Path resourceFolder, Path path) throws IOException {
+        byte[] text = Files.readAllBytes(path);
+        ConversionRateTable table = CurrencyConverterFactory.parseTTBR(new ByteArrayInputStream(text));
+        double[] rates = table.getRates();
+        ByteBuffer payload = payload(8 * rates.length);
+        payload.asDoubleBuffer().put(rates);
+        return new Source(resourceFolder, path, text, CONVERSION_RATES, rates.length, table.getFirstEpochDay(), payload);
+    }
+
+    private static Source costInflationSource(Path path) throws IOException {
+        byte[] text = Files.readAllBytes(path);
+        Map<Integer, Integer> costInflation = new TreeMap<>(CostInflationRepository.parseCSV(new ByteArrayInputStream(text)));
+        int n = costInflation.size();
+        ByteBuffer payload = payload(8 * n);
+        for (int year : costInflation.keySet())
+            payload.putInt(year);
+        for (int index : costInflation.values())
+            payload.putInt(index);
+        return new Source(path.getParent(), path, text, COST_INFLATION, n, 0, payload);
+    }
+
+    private static ByteBuffer payload(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static List<Path> list(Path folder, String suffix) throws IOException {
+        if (!Files.isDirectory(folder))
+            return new ArrayList<>();
+        try (Stream<Path> stream = Files.list(folder)) {
+            return stream.filter(path -> path.getFileName().toString().endsWith(suffix)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static final class Source {
+        private final byte[] name;
+        private final int crc;
+        private final int kind;
+        private final int count;
+        private final int first;
+        private final byte[] payload;
+        private int offset;
+
+        private Source(Path resourceFolder, Path path, byte[] text, int kind, int count, int first, ByteBuffer payload)
+                throws IOException {
+            // Resource names always use '/' whatever the platform separator
+            this.name = resourceFolder.relativize(path).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8);
+            this.crc = ReferenceDataSnapshot.crc(new ByteArrayInputStream(text));
+            this.kind = kind;
+            this.count = count;
+            this.first = first;
+            this.payload = payload.array();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.repositories;
+
+import org.example.metrics.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Price series by ticker, kept within a budget of approximate bytes. The first caller for a ticker loads it while
+// concurrent callers for the same ticker wait on that load, so a series is read once however many workers ask.
+// When the budget is exceeded the least recently used series are dropped; they are loaded again on next use.
+// Tickers without prices are not cached.
+final class StockPriceCache {
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Function<String, StockPriceSeries> loader;
+    private final long maxWeight;
+    private final AtomicLong weight = new AtomicLong();
+    // Logical clock for recency, cheaper and finer than reading the time on every lookup
+    private final AtomicLong clock = new AtomicLong();
+
+    StockPriceCache(Function<String, StockPriceSeries> loader, long maxWeight) {
+        this.loader = loader;
+        this.maxWeight = maxWeight;
+    }
+
+    // Returns null when the loader has no prices for the ticker
+    StockPriceSeries get(String ticker) {
+        Entry entry = entries.get(ticker);
+        if (entry == null) {
+            Entry created = new Entry();
+            entry = entries.putIfAbsent(ticker, created);
+            if (entry == null) {
+                entry = created;
+                Metrics.PRICE_CACHE_MISSES.increment();
+                load(ticker, created);
+            } else {
+                Metrics.PRICE_CACHE_HITS.increment();
+            }
+        } else {
+            Metrics.PRICE_CACHE_HITS.increment();
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        try {
+            return entry.series.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // Series loaded so far, not the ones still loading
+    void forEachLoaded(BiConsumer<String, StockPriceSeries> action) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            CompletableFuture<StockPriceSeries> series = entry.getValue().series;
+            if (series.isDone() && !series.isCompletedExceptionally())
+                action.accept(entry.getKey(), series.join());
+        }
+    }
+
+    // Adds a series loaded elsewhere unless the ticker is already cached
+    void put(String ticker, StockPriceSeries series) {
+        Entry created = new Entry();
+        if (entries.putIfAbsent(ticker, created) != null)
+            return;
+        created.weight = series.getWeight();
+        weight.addAndGet(created.weight);
+        created.series.complete(series);
+        evict(ticker);
+    }
+
+    long getWeight() {
+        return weight.get();
+    }
+
+    private void load(String ticker, Entry entry) {
+        StockPriceSeries series;
+        try {
+            series = loader.apply(ticker);
+        } catch (RuntimeException e) {
+            entries.remove(ticker, entry);
+            entry.series.completeExceptionally(e);
+            return;
+        }
+        if (series == null) {
+            entries.remove(ticker, entry);
+            entry.series.complete(null);
+            return;
+        }
+        entry.weight = series.getWeight();
+        weight.addAndGet(entry.weight);
+        entry.series.complete(series);
+        evict(ticker);
+    }
+
+    // Drops the least recently used loaded series other than the one just loaded until the cache fits its budget
+    private void evict(String loaded) {
+        while (weight.get() > maxWeight) {
+            String victim = null;
+            Entry victimEntry = null;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                Entry entry = candidate.getValue();
+                if (candidate.getKey().equals(loaded) || !entry.series.isDone())
+                    continue;
+                if (victimEntry == null || entry.lastAccess < victimEntry.lastAccess) {
+                    victim = candidate.getKey();
+                    victimEntry = entry;
+                }
+            }
+            if (victimEntry == null)
+                return;
+            if (entries.remove(victim, victimEntry)) {
+                weight.addAndGet(-victimEntry.weight);
+                Metrics.PRICE_CACHE_EVICTIONS.increment();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<StockPriceSeries> series = new CompletableFuture<>();
+        private volatile long lastAccess;
+        private long weight;
+    }
+}
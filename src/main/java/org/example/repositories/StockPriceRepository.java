@@ -1,72 +1,91 @@
 package org.example.repositories;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.example.metrics.Metrics;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class StockPriceRepository {
-    private static final Map<String, TreeMap<LocalDate, Double>> stockPrices = new HashMap<>();
     public static final int FALLBACK_DAYS = 3;
+    // Budget of the price cache in approximate bytes, 64 MB holds a few hundred tickers of daily closes
+    public static final String CACHE_BYTES_PROPERTY = "itrhelper.priceCacheBytes";
+    static final String FOLDER = "stock_prices";
 
-    public static Double getStockPrice(String ticker, LocalDate date){
-        Map<LocalDate, Double> prices = getStockPrices(ticker);
-        if(prices == null)
-            throw new MissingResourceException("Stock Prices not found for ticker", "Stock", ticker);
-
-        LocalDate tempDate = LocalDate.parse(date.toString());
-        int i = 0;
-        while(i <= FALLBACK_DAYS){
-            if(prices.containsKey(tempDate))
-                return prices.get(tempDate);
-            tempDate = tempDate.minusDays(1);
-            i++;
-        }
+    // Lookups on the current version of the reference data, a run holds on to a ReferenceData instead
+    public static double getStockPrice(String ticker, LocalDate date){
+        return ReferenceData.current().getStockPrice(ticker, date);
+    }
 
-        throw new RuntimeException("No stock price found for date: " + date);
+    // Closing prices for ascending epoch days, resolved in a single pass
+    public static double[] getStockPrices(String ticker, int[] sortedEpochDays){
+        return ReferenceData.current().getStockPrices(ticker, sortedEpochDays);
     }
 
-    //TODO: this can be improved
     public static Pair<LocalDate, Double> getPeakStockPrice(String ticker, LocalDate startDate, LocalDate endDate) {
-        Map<LocalDate, Double> prices = getStockPrices(ticker);
-        if(prices == null)
-            throw new MissingResourceException("Stock Prices not found for ticker", "Stock", ticker);
+        return ReferenceData.current().getPeakStockPrice(ticker, startDate, endDate);
+    }
 
-        List<Map.Entry<LocalDate, Double>> applicableEntries = prices.entrySet().stream()
-                .filter(e -> !e.getKey().isBefore(startDate) && !e.getKey().isAfter(endDate))
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .collect(Collectors.toList());
-        return Pair.of(applicableEntries.get(0).getKey(), applicableEntries.get(0).getValue());
+    // Loads the price series of a ticker ahead of its first lookup
+    public static void preload(String ticker){
+        ReferenceData.current().preload(ticker);
     }
 
-    // For now this tracks the Closing price
-    private static Map<LocalDate, Double> getStockPrices(String ticker) {
-        if(stockPrices.containsKey(ticker))
-            return stockPrices.get(ticker);
+    static long getCacheBytes() {
+        return Long.getLong(CACHE_BYTES_PROPERTY, 64L << 20);
+    }
 
-        TreeMap<LocalDate, Double> treeMap = new TreeMap<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(
-                StockPriceRepository.class.getResourceAsStream(String.format("/stock_prices/%s.tsv", ticker)))))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] tokens = line.split("\t");
-                if (!tokens[0].equals("Date") && tokens.length == 7) {
-                    LocalDate localDate = LocalDate.parse(tokens[0], DateTimeFormatter.ofPattern("MMM dd, yyyy"));
-                    double price = Double.parseDouble(tokens[4]);
-                    treeMap.put(localDate, price);
-                }
+    // For now this tracks the Closing price
+    static StockPriceSeries readFromTSV(String ticker) {
+        try (InputStream in = ReferenceData.openOverride(getResource(ticker))) {
+            if (in != null) {
+                Metrics.TEXT_LOADS.increment();
+                return parseTSV(in);
             }
         } catch (IOException e) {
             throw new RuntimeException("Exception reading stock prices. Exception : " + e.toString());
-        } catch (NullPointerException e){
-            treeMap = null;
         }
-        stockPrices.put(ticker, treeMap);
-        return stockPrices.get(ticker);
+        StockPriceSeries series = ReferenceDataSnapshot.getStockPrices(ticker);
+        if (series != null) {
+            Metrics.SNAPSHOT_LOADS.increment();
+            return series;
+        }
+        Metrics.TEXT_LOADS.increment();
+        try (InputStream in = StockPriceRepository.class.getResourceAsStream("/" + getResource(ticker))) {
+            return in == null ? null : parseTSV(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Exception reading stock prices. Exception : " + e.toString());
+        }
+    }
+
+    static String getResource(String ticker) {
+        return String.format("%s/%s.tsv", FOLDER, ticker);
+    }
+
+    static StockPriceSeries parseTSV(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d, yyyy");
+        int[] epochDays = new int[1024];
+        double[] closes = new double[1024];
+        int size = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] tokens = line.split("\t");
+            if (!tokens[0].equals("Date") && tokens.length == 7) {
+                if (size == epochDays.length) {
+                    epochDays = Arrays.copyOf(epochDays, size * 2);
+                    closes = Arrays.copyOf(closes, size * 2);
+                }
+                epochDays[size] = (int) LocalDate.parse(tokens[0], formatter).toEpochDay();
+                closes[size] = Double.parseDouble(tokens[4]);
+                size++;
+            }
+        }
+        return StockPriceSeries.of(epochDays, closes, size);
     }
 }
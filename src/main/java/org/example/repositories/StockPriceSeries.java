@@ -0,0 +1,143 @@
+package org.example.repositories;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.example.metrics.Metrics;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import static org.example.repositories.StockPriceRepository.FALLBACK_DAYS;
+
+// Closing prices of one ticker stored column-wise: trading days as epoch days in ascending order and
+// their closes at the same positions. Lookups fall back to the latest close at most FALLBACK_DAYS old.
+final class StockPriceSeries {
+    private final int[] epochDays;
+    private final double[] closes;
+    private final PeakPriceIndex peakPriceIndex;
+
+    private StockPriceSeries(int[] epochDays, double[] closes) {
+        this.epochDays = epochDays;
+        this.closes = closes;
+        this.peakPriceIndex = new PeakPriceIndex(closes);
+    }
+
+    // Takes the first size entries in any order. When a day repeats the later entry wins.
+    static StockPriceSeries of(int[] epochDays, double[] closes, int size) {
+        boolean ascending = true;
+        boolean descending = true;
+        for (int i = 1; i < size; i++) {
+            ascending &= epochDays[i - 1] < epochDays[i];
+            descending &= epochDays[i - 1] > epochDays[i];
+        }
+
+        int[] days = new int[size];
+        double[] prices = new double[size];
+        if (ascending) {
+            System.arraycopy(epochDays, 0, days, 0, size);
+            System.arraycopy(closes, 0, prices, 0, size);
+            return new StockPriceSeries(days, prices);
+        }
+        if (descending) {
+            for (int i = 0; i < size; i++) {
+                days[i] = epochDays[size - 1 - i];
+                prices[i] = closes[size - 1 - i];
+            }
+            return new StockPriceSeries(days, prices);
+        }
+
+        int[] order = IntStream.range(0, size).boxed()
+                .sorted(Comparator.<Integer>comparingInt(i -> epochDays[i]).thenComparing(Comparator.reverseOrder()))
+                .mapToInt(Integer::intValue).toArray();
+        int n = 0;
+        for (int i : order) {
+            if (n > 0 && days[n - 1] == epochDays[i])
+                continue;
+            days[n] = epochDays[i];
+            prices[n] = closes[i];
+            n++;
+        }
+        return new StockPriceSeries(Arrays.copyOf(days, n), Arrays.copyOf(prices, n));
+    }
+
+    // Rebuilds a series from the columns of another, as stored in the reference data snapshot
+    static StockPriceSeries ofSorted(int[] epochDays, double[] closes) {
+        return new StockPriceSeries(epochDays, closes);
+    }
+
+    int[] getEpochDays() {
+        return epochDays;
+    }
+
+    double[] getCloses() {
+        return closes;
+    }
+
+    int size() {
+        return epochDays.length;
+    }
+
+    // Approximate heap footprint in bytes, used to keep the price cache within its budget
+    long getWeight() {
+        return 16 + 16 + 4L * epochDays.length + 16 + 8L * closes.length + peakPriceIndex.getWeight();
+    }
+
+    double getClose(int epochDay) {
+        int i = floor(epochDay);
+        if (i < 0 || epochDay - epochDays[i] > FALLBACK_DAYS) {
+            Metrics.STOCK_PRICE_MISSES.increment();
+            throw new RuntimeException("No stock price found for date: " + LocalDate.ofEpochDay(epochDay));
+        }
+        if (epochDays[i] != epochDay)
+            Metrics.STOCK_PRICE_FALLBACKS.increment();
+        return closes[i];
+    }
+
+    // Resolves ascending epoch days in one merge pass over the series
+    double[] getCloses(int[] sortedEpochDays) {
+        double[] result = new double[sortedEpochDays.length];
+        int fallbacks = 0;
+        int i = -1;
+        for (int j = 0; j < sortedEpochDays.length; j++) {
+            int epochDay = sortedEpochDays[j];
+            if (j > 0 && epochDay < sortedEpochDays[j - 1])
+                throw new IllegalArgumentException("Dates are not sorted: " + LocalDate.ofEpochDay(epochDay));
+            while (i + 1 < epochDays.length && epochDays[i + 1] <= epochDay)
+                i++;
+            if (i < 0 || epochDay - epochDays[i] > FALLBACK_DAYS) {
+                Metrics.STOCK_PRICE_MISSES.increment();
+                throw new RuntimeException("No stock price found for date: " + LocalDate.ofEpochDay(epochDay));
+            }
+            if (epochDays[i] != epochDay)
+                fallbacks++;
+            result[j] = closes[i];
+        }
+        Metrics.STOCK_PRICE_FALLBACKS.add(fallbacks);
+        return result;
+    }
+
+    Pair<LocalDate, Double> getPeak(int startEpochDay, int endEpochDay) {
+        int from = floor(startEpochDay - 1) + 1;
+        int to = floor(endEpochDay);
+        if (from > to)
+            throw new RuntimeException(String.format("No stock price found between %s and %s",
+                    LocalDate.ofEpochDay(startEpochDay), LocalDate.ofEpochDay(endEpochDay)));
+
+        int peak = peakPriceIndex.getPeak(from, to);
+        return Pair.of(LocalDate.ofEpochDay(epochDays[peak]), closes[peak]);
+    }
+
+    // Trading days from startEpochDay to endEpochDay, with their closes at the same positions
+    Pair<int[], double[]> getRange(int startEpochDay, int endEpochDay) {
+        int from = floor(startEpochDay - 1) + 1;
+        int to = Math.max(floor(endEpochDay) + 1, from);
+        return Pair.of(Arrays.copyOfRange(epochDays, from, to), Arrays.copyOfRange(closes, from, to));
+    }
+
+    // Position of the last trading day on or before the given day, -1 if there is none
+    private int floor(int epochDay) {
+        int i = Arrays.binarySearch(epochDays, epochDay);
+        return i >= 0 ? i : -i - 2;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.repositories;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Maps the investment names used in Fidelity exports to the tickers used for stock prices. The mapping is read once
+// per JVM, from the reference data override folder if it has one and otherwise from the classpath.
+public class TickerRepository {
+    static final String RESOURCE = "tickers.csv";
+
+    // Returns null for investments that are not mapped, such as money market funds
+    public static String getTicker(String investmentName){
+        return Holder.tickers.get(investmentName);
+    }
+
+    public static Collection<String> getTickers(){
+        return Collections.unmodifiableCollection(new TreeSet<>(Holder.tickers.values()));
+    }
+
+    // SHA-256 of the mapping, for caches of resolved tickers to tell when it has changed
+    public static byte[] getMappingDigest(){
+        return Holder.digest.clone();
+    }
+
+    private static class Holder {
+        private static final Map<String, String> tickers = readTickers();
+        private static final byte[] digest = digest(tickers);
+    }
+
+    private static byte[] digest(Map<String, String> tickers) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Map.Entry<String, String> entry : new TreeMap<>(tickers).entrySet())
+            digest.update((entry.getKey() + '\t' + entry.getValue() + '\n').getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    private static Map<String, String> readTickers() {
+        Map<String, String> tickers = new HashMap<>();
+        try (InputStream override = ReferenceData.openOverride(RESOURCE);
+             InputStream in = override != null ? override : TickerRepository.class.getResourceAsStream("/" + RESOURCE)) {
+            if (in == null)
+                throw new MissingResourceException("Ticker data missing", "Ticker", "File");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.lastIndexOf(',');
+                if (comma > 0)
+                    tickers.put(line.substring(0, comma).trim(), line.substring(comma + 1).trim());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Exception reading tickers. Exception : " + e);
+        }
+        return Collections.unmodifiableMap(tickers);
+    }
+}
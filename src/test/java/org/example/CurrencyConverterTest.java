@@ -0,0 +1,36 @@
+package org.example;
+
+import org.example.repositories.CurrencyConverterFactory;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.MissingResourceException;
+
+import static org.example.dtos.Currency.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CurrencyConverterTest {
+    private final CurrencyConverter converter = CurrencyConverterFactory.build(USD, INR);
+
+    @Test
+    void convertFallsBackToPreviousRate() {
+        assertEquals(71.65, converter.convert(LocalDate.parse("2020-01-06"), 1));
+        // Saturday 2020-01-11 uses the rate of 2020-01-10
+        assertEquals(70.55 * 2, converter.convert(LocalDate.parse("2020-01-11"), 2));
+    }
+
+    @Test
+    void convertIncomeUsesLastDayOfPreviousMonth() {
+        // 2020-02-29 has no rate, so 2020-02-28 is used
+        assertEquals(71.70, converter.convertIncome(LocalDate.parse("2020-03-17"), 1));
+    }
+
+    @Test
+    void missingRateThrows() {
+        // The published rate for 2020-01-04 is zero and there is nothing earlier
+        assertThrows(MissingResourceException.class, () -> converter.convert(LocalDate.parse("2020-01-04"), 1));
+        assertThrows(MissingResourceException.class, () -> converter.convertIncome(LocalDate.parse("2020-01-20"), 1));
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import org.example.dtos.EventType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStoreTest {
+
+    private static EventStore part(boolean offHeap, int... epochDays) {
+        EventStore.Builder builder = new EventStore.Builder(1);
+        for (int epochDay : epochDays)
+            builder.add(epochDay, EventType.DIVIDEND, epochDay * 1.5, 0, 2023, epochDay % 20 == 0 ? "MSFT" : null);
+        return builder.build(offHeap);
+    }
+
+    private static TransactionHistoryReader file(int year, String... rows) {
+        StringBuilder csv = new StringBuilder("Transaction date,Transaction type,Investment name,Shares,Amount\r\n");
+        // The amount is the row number
+        for (int row = 0; row < rows.length; row++)
+            csv.append(rows[row]).append(",DIVIDEND RECEIVED,MICROSOFT CORP,-,$").append(row).append("\r\n");
+        return TransactionHistoryReader.ordered(ByteBuffer.wrap(csv.toString().getBytes(StandardCharsets.UTF_8)), year);
+    }
+
+    @Test
+    void storesColumnsOnHeapAndOffHeap() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            EventStore store = part(offHeap, 10, 20, 30);
+            assertEquals(3, store.size());
+            assertEquals(LocalDate.ofEpochDay(20), store.getEvent(1).getDate());
+            assertEquals(45, store.getAmount(2));
+            assertEquals("MSFT", store.getTicker(1));
+            assertNull(store.getTicker(2));
+        }
+    }
+
+    @Test
+    void cursorStartsAtPosition() {
+        EventCursor cursor = part(false, 1, 2, 3).cursor(2);
+        assertTrue(cursor.next());
+        assertEquals(3, cursor.getEpochDay());
+        assertEquals(EventType.DIVIDEND, cursor.getType());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void mergesFilesByDateUpToLastDay() {
+        // Newest first within files, same days keep file order and then row order, days after the cut-off are dropped
+        List<TransactionHistoryReader> files = Arrays.asList(
+                file(2022, "Mar-01-2023", "Feb-01-2023", "Feb-01-2023", "Jan-01-2023"),
+                file(2021),
+                file(2023, "Apr-01-2023", "Feb-01-2023", "Jan-15-2023"));
+        assertEquals(LocalDate.of(2023, 3, 1).toEpochDay(), files.get(0).getLastEpochDay());
+        assertEquals(Integer.MIN_VALUE, files.get(1).getLastEpochDay());
+
+        MergedEventCursor cursor = new MergedEventCursor(files, (int) LocalDate.of(2023, 3, 31).toEpochDay());
+        assertEquals(LocalDate.of(2023, 1, 1).toEpochDay(), cursor.getFirstEpochDay());
+        List<String> order = new ArrayList<>();
+        while (cursor.next())
+            order.add(cursor.getPosition() + ":" + cursor.getDate() + "@" + cursor.getYear() + "#" + (int) cursor.getAmount());
+        assertEquals("[0:2023-01-01@2022#3, 1:2023-01-15@2023#2, 2:2023-02-01@2022#1, 3:2023-02-01@2022#2, " +
+                "4:2023-02-01@2023#1, 5:2023-03-01@2022#0]", order.toString());
+        assertFalse(cursor.next());
+    }
+}
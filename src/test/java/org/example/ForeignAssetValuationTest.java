@@ -0,0 +1,44 @@
+package org.example;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Lot;
+import org.example.dtos.TaxEntry;
+import org.example.repositories.CurrencyConverterFactory.CurrencyConverter;
+import org.example.repositories.ReferenceData;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.example.dtos.Currency.INR;
+import static org.example.dtos.Currency.USD;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForeignAssetValuationTest {
+    private static final LocalDate FY_START = LocalDate.of(2023, 4, 1);
+    private static final LocalDate FY_END = LocalDate.of(2024, 3, 31);
+
+    @Test
+    void groupsLotsAndTakesThePeakInINR() {
+        ReferenceData referenceData = ReferenceData.current();
+        CurrencyConverter converter = referenceData.getCurrencyConverter(USD, INR);
+        LocalDate acquired = LocalDate.of(2023, 9, 1);
+        List<Lot> lots = Arrays.asList(
+                new Lot("MSFT", acquired, 2 * FixedPoint.MICROS_PER_SHARE, 25000, 0, true),
+                new Lot("MSFT", acquired, 3 * FixedPoint.MICROS_PER_SHARE, 26000, 0, true),
+                new Lot("MSFT", LocalDate.of(2022, 2, 15), FixedPoint.MICROS_PER_SHARE, 20000, 0, false));
+
+        List<TaxEntry> assets = new ForeignAssetValuation(referenceData, converter, FY_START, FY_END).getForeignAssets(lots);
+
+        // Highest close times the TTBR of its own day, over the trading days held
+        Pair<int[], double[]> closes = referenceData.getStockPriceRange("MSFT", acquired, FY_END);
+        double[] inr = converter.convert(closes.getLeft(), closes.getRight());
+        double peak = Arrays.stream(inr).filter(value -> !Double.isNaN(value)).max().getAsDouble();
+        assertEquals(1, assets.size());
+        assertEquals(2 * 25000 + 3 * 26000, assets.get(0).getInitialValue());
+        assertEquals((int) (peak * 5), assets.get(0).getPeakValue());
+        assertTrue(assets.get(0).getPeakValue() >= assets.get(0).getClosingValue());
+    }
+}
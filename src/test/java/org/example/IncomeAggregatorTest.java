@@ -0,0 +1,45 @@
+package org.example;
+
+import org.example.dtos.Event;
+import org.example.dtos.EventType;
+import org.example.dtos.IncomeEntry;
+import org.example.repositories.CurrencyConverterFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.stream.Collectors;
+
+import static org.example.dtos.Currency.INR;
+import static org.example.dtos.Currency.USD;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncomeAggregatorTest {
+
+    private static Event event(String date, EventType type, double amount) {
+        return new Event(LocalDate.parse(date), type, amount, 0, 2023, "MSFT");
+    }
+
+    @Test
+    void matchesDividendsWithTaxOfTheSameDay() {
+        IncomeAggregator income = new IncomeAggregator(2023, CurrencyConverterFactory.build(USD, INR));
+        income.accept(event("2023-03-09", EventType.DIVIDEND, 26.80)); // before the FY
+        income.accept(event("2023-03-09", EventType.TAX, 6.70));
+        income.accept(event("2023-06-08", EventType.DIVIDEND, 24.64)); // tax after the dividend
+        income.accept(event("2023-06-08", EventType.TAX, 6.16));
+        income.accept(event("2023-07-14", EventType.DIVIDEND, 1.00)); // no tax withheld
+        income.accept(event("2023-09-14", EventType.TAX, 6.80));
+        income.accept(event("2023-09-14", EventType.DIVIDEND, 27.20));
+        income.accept(event("2023-11-20", EventType.SELL, 2724.55));
+        income.finish();
+
+        assertEquals(1, income.getSales().getEntries().size());
+        assertEquals(2, income.getTaxes().getEntries().size());
+        assertEquals("[2023-06-08, 2023-09-14]", income.getDividends().getEntries().stream()
+                .map(IncomeEntry::getDate).collect(Collectors.toList()).toString());
+        double[] quarters = income.getDividendsByQuarter();
+        assertArrayEquals(new double[]{income.getDividends().getEntries().get(0).getAmountInINR(),
+                income.getDividends().getEntries().get(1).getAmountInINR(), 0, 0, 0}, quarters);
+        assertEquals(2, income.getForm67().size());
+    }
+}
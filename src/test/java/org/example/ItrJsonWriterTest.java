@@ -0,0 +1,36 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dtos.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItrJsonWriterTest {
+
+    @Test
+    void writesItrSections() throws IOException {
+        TaxEntry taxEntry = new TaxEntry("MSFT", LocalDate.of(2023, 2, 15), 100, 200, 120, 10, 7090);
+        Report report = new Report(2023, null, Collections.emptyList(), 0, Collections.emptyList(), 0,
+                Collections.emptyList(), 0, new double[5], Collections.singletonList(new Form67Entry(1, 2028, 507, 608)),
+                new CapitalGains(242100, 301411), Collections.singletonList(taxEntry));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ItrJsonWriter.write(report, out);
+
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals("2024-25", json.get("AssessmentYear").asText());
+        JsonNode asset = json.get("ScheduleFA").get("DtlsForeignEquityDebtInterest").get(0);
+        assertEquals("Microsoft", asset.get("NameOfEntity").asText());
+        assertEquals("2023-02-15", asset.get("InterestAcquiringDate").asText());
+        assertEquals(200, asset.get("PeakBalanceDuringPeriod").asInt());
+        assertEquals(70, asset.get("TotGrossProceeds").asInt());
+        assertEquals(507, json.get("Form67").get("IncomeFromOutsideIndia").get(0).get("TotalForeignTaxCreditClaimed").asInt());
+        assertEquals(301411, json.get("LongTermCapitalGains").get("FullValueOfConsideration").asInt());
+    }
+}
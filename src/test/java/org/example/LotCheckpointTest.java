@@ -0,0 +1,60 @@
+package org.example;
+
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Lot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LotCheckpointTest {
+    @TempDir
+    Path folder;
+
+    private Path save() throws IOException {
+        Lot lot = new Lot("MSFT", LocalDate.of(2021, 11, 15), 6 * FixedPoint.MICROS_PER_SHARE, 20000, 150000, true);
+        LotCheckpoint.capture(2023, Collections.singletonList(lot), null).save(folder.resolve("checkpoints"), folder);
+        return folder.resolve("checkpoints").resolve("lots-2023.bin");
+    }
+
+    @Test
+    void roundTrips() throws IOException {
+        save();
+        LotCheckpoint checkpoint = LotCheckpoint.load(folder.resolve("checkpoints"), folder, 2023);
+        assertNotNull(checkpoint);
+        Lot lot = checkpoint.getLots().get(0);
+        assertEquals("MSFT", lot.getTicker());
+        assertEquals(6 * FixedPoint.MICROS_PER_SHARE, lot.getMicroShares());
+        assertNull(checkpoint.getUnmetESPPLot(checkpoint.getLots()));
+    }
+
+    @Test
+    void deletesDamagedCheckpoints() throws IOException {
+        // Header: magic, version, year and the 32-byte hash, then the lot count
+        int countAt = 12 + 32;
+        for (int damage = 0; damage < 3; damage++) {
+            Path file = save();
+            byte[] bytes = Files.readAllBytes(file);
+            if (damage == 0) {
+                // Negative lot count
+                bytes[countAt] = (byte) 0x80;
+            } else if (damage == 1) {
+                // Ticker length past the end of the file
+                bytes[countAt + 4] = (byte) 0x7f;
+            } else {
+                // Invalid modified UTF-8 in the ticker
+                bytes[countAt + 6] = (byte) 0xff;
+            }
+            Files.write(file, bytes);
+
+            assertNull(LotCheckpoint.load(folder.resolve("checkpoints"), folder, 2023), "Damage " + damage);
+            assertFalse(Files.exists(file), "Damage " + damage);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example;
+
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Lot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LotJournalTest {
+
+    private static String[] read(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LotJournalReader.print(file, new PrintStream(bytes, true, "UTF-8"));
+        return bytes.toString("UTF-8").split("\\R");
+    }
+
+    @Test
+    void recordsMutationsAndKeepsTheLatestOnceFull(@TempDir Path folder) throws IOException {
+        Path file = folder.resolve("lots.journal");
+        LotJournal.Run run = new LotJournal(file, 3).newRun(2023);
+        LocalDate date = LocalDate.of(2023, 5, 10);
+        Lot lot = new Lot("MSFT", LocalDate.of(2022, 3, 15), 10 * FixedPoint.MICROS_PER_SHARE, 20000, 125050, true);
+        run.created(0, lot);
+        lot.decrementShares(FixedPoint.toMicroShares(2.5), false);
+        run.sold(4, (int) date.toEpochDay(), lot, FixedPoint.toMicroShares(2.5), 7565550, false);
+
+        String[] lines = read(file);
+        assertEquals(3, lines.length);
+        assertEquals("1,1,2023,CREATE,1,0,2022-03-15,MSFT,10,$1250.50,10", lines[1]);
+        assertEquals("2,1,2023,SALE,1,4,2023-05-10,MSFT,2.5,75655.50,7.5", lines[2]);
+
+        // Lots not created in the run are recorded as restored when first touched
+        Lot restored = Lot.restore("MSFT", LocalDate.of(2021, 1, 4), FixedPoint.MICROS_PER_SHARE, 15000, 0, FixedPoint.MICROS_PER_SHARE);
+        run.credited(6, (int) date.toEpochDay(), restored, 1210);
+        lines = read(file);
+        assertEquals(4, lines.length);
+        assertTrue(lines[1].startsWith("2,1,2023,SALE,1,"));
+        assertTrue(lines[2].startsWith("3,1,2023,RESTORE,2,6,2021-01-04,MSFT,1,"));
+        assertTrue(lines[3].startsWith("4,1,2023,DIVIDEND,2,6,2023-05-10,MSFT,1,12.10,1"));
+    }
+}
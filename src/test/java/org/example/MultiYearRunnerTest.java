@@ -0,0 +1,47 @@
+package org.example;
+
+import org.apache.commons.io.output.NullPrintStream;
+import org.example.dtos.Report;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MultiYearRunnerTest {
+    private static final String HEADER = "Transaction date,Transaction type,Investment name,Shares,Amount\r\n";
+
+    @TempDir
+    Path folder;
+
+    private static String print(Report report) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportPrinter.print(report, new PrintStream(out, true));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void matchesAReplayPerYear() throws IOException {
+        // Sales and dividends in the January to March overlap of consecutive FYs, and a year without transactions
+        Files.write(folder.resolve("Transaction history 2021.csv"), (HEADER +
+                "Nov-15-2021,CONVERSION SHARES DEPOSITED,MICROSOFT CORP,6.000,$0.00\r\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.resolve("Transaction history 2022.csv"), (HEADER +
+                "Mar-10-2022,NON-RESIDENT TAX DIVIDEND RECEIVED,MICROSOFT CORP,-,-$9.24\r\n" +
+                "Mar-10-2022,DIVIDEND RECEIVED,MICROSOFT CORP,-,$36.96\r\n" +
+                "Feb-15-2022,YOU SOLD EXERCISE,MICROSOFT CORP,-2.000,$580.00\r\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.resolve("Transaction history 2024.csv"), (HEADER +
+                "Feb-15-2024,YOU SOLD EXERCISE,MICROSOFT CORP,-1.000,$405.00\r\n").getBytes(StandardCharsets.UTF_8));
+
+        Map<Integer, Report> reports = MultiYearRunner.buildReports(folder, 2021, 2023);
+        assertEquals(3, reports.size());
+        for (int year = 2021; year <= 2023; year++)
+            assertEquals(print(new FidelityParser(year, NullPrintStream.INSTANCE).buildReport(folder)), print(reports.get(year)), "Year " + year);
+    }
+}
@@ -0,0 +1,84 @@
+package org.example;
+
+import org.example.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+    @TempDir
+    Path folder;
+
+    private Path transactions() throws IOException {
+        return Files.write(folder.resolve("Transaction history 2023.csv"), ("Transaction date,Transaction type,Investment name,Shares,Amount\r\n"
+                + "Feb-01-2023,DIVIDEND RECEIVED,MICROSOFT CORP,-,$10.50\r\n"
+                + "Jan-15-2023,YOU SOLD,MICROSOFT CORP,-2.5,$500.00\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Path> entries(Path cacheFolder) throws IOException {
+        try (Stream<Path> stream = Files.list(cacheFolder)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void unchangedFileIsReadFromTheCache() throws IOException {
+        Path path = transactions();
+        ParseCache cache = new ParseCache(folder.resolve("cache"), ParseCache.MAX_BYTES);
+        long hits = Metrics.PARSE_CACHE_HITS.get();
+        EventStore parsed = cache.read(path, 2023);
+        EventStore cached = cache.read(path, 2023);
+        assertEquals(hits + 1, Metrics.PARSE_CACHE_HITS.get());
+        assertEquals(2, cached.size());
+        assertEquals(parsed.toEvents(), cached.toEvents());
+        assertEquals("MSFT", cached.getTicker(0));
+    }
+
+    @Test
+    void corruptEntryIsParsedAgain() throws IOException {
+        Path path = transactions();
+        ParseCache cache = new ParseCache(folder.resolve("cache"), ParseCache.MAX_BYTES);
+        EventStore parsed = cache.read(path, 2023);
+        Path entry = entries(folder.resolve("cache")).get(0);
+        byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(entry, bytes);
+
+        long corrupt = Metrics.PARSE_CACHE_CORRUPT.get();
+        assertEquals(parsed.toEvents(), cache.read(path, 2023).toEvents());
+        assertEquals(corrupt + 1, Metrics.PARSE_CACHE_CORRUPT.get());
+        // Written again from the parsed file
+        long hits = Metrics.PARSE_CACHE_HITS.get();
+        cache.read(path, 2023);
+        assertEquals(hits + 1, Metrics.PARSE_CACHE_HITS.get());
+    }
+
+    @Test
+    void changedTickerMappingMisses() throws IOException {
+        Path path = transactions();
+        new ParseCache(folder.resolve("cache"), ParseCache.MAX_BYTES, new byte[]{1}).read(path, 2023);
+        long misses = Metrics.PARSE_CACHE_MISSES.get();
+        long hits = Metrics.PARSE_CACHE_HITS.get();
+        new ParseCache(folder.resolve("cache"), ParseCache.MAX_BYTES, new byte[]{2}).read(path, 2023);
+        assertEquals(misses + 1, Metrics.PARSE_CACHE_MISSES.get());
+        assertEquals(hits, Metrics.PARSE_CACHE_HITS.get());
+        assertEquals(2, entries(folder.resolve("cache")).size());
+    }
+
+    @Test
+    void evictsEntriesOverBudget() throws IOException {
+        Path path = transactions();
+        ParseCache cache = new ParseCache(folder.resolve("cache"), 0);
+        cache.read(path, 2023);
+        assertTrue(entries(folder.resolve("cache")).isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Lot;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioTest {
+
+    private static Map<Lot, Long> allocate(Portfolio portfolio, String ticker) {
+        Map<Lot, Long> credited = new IdentityHashMap<>();
+        portfolio.allocateDividend(ticker, (lot, microShares, totalMicroShares) -> {
+            assertEquals(null, credited.put(lot, microShares));
+            assertTrue(microShares <= totalMicroShares);
+        });
+        return credited;
+    }
+
+    @Test
+    void creditsDividendOfSoldOutTickerToItsOwnLots() {
+        Portfolio portfolio = new Portfolio();
+        Lot msft = new Lot("MSFT", LocalDate.of(2021, 11, 15), 6 * FixedPoint.MICROS_PER_SHARE, 20000, 0, true);
+        Lot aapl = new Lot("AAPL", LocalDate.of(2022, 1, 10), 4 * FixedPoint.MICROS_PER_SHARE, 12000, 0, true);
+        portfolio.add(msft);
+        portfolio.add(aapl);
+        // MSFT is sold out in February, its dividend of the earlier record date is paid in March
+        portfolio.sell("MSFT", 6 * FixedPoint.MICROS_PER_SHARE, false, (lot, microShares) -> {
+        });
+
+        Map<Lot, Long> credited = allocate(portfolio, "MSFT");
+        assertEquals(1, credited.size());
+        assertEquals(6 * FixedPoint.MICROS_PER_SHARE, credited.get(msft));
+
+        credited = allocate(portfolio, "AAPL");
+        assertEquals(1, credited.size());
+        assertEquals(4 * FixedPoint.MICROS_PER_SHARE, credited.get(aapl));
+
+        // Investments without a ticker are spread over what is still held
+        credited = allocate(portfolio, null);
+        assertEquals(1, credited.size());
+        assertTrue(credited.containsKey(aapl));
+
+        assertThrows(RuntimeException.class, () -> allocate(portfolio, "GOOG"));
+    }
+
+    @Test
+    void failsForTickerNotHeldInTheCalendarYear() {
+        Portfolio portfolio = new Portfolio();
+        portfolio.add(new Lot("MSFT", LocalDate.of(2021, 11, 15), 2 * FixedPoint.MICROS_PER_SHARE, 20000, 0, true));
+        portfolio.add(new Lot("AAPL", LocalDate.of(2021, 12, 10), 4 * FixedPoint.MICROS_PER_SHARE, 12000, 0, true));
+        // Sold before the calendar year, so nothing of MSFT was held in it
+        portfolio.sell("MSFT", 2 * FixedPoint.MICROS_PER_SHARE, true, (lot, microShares) -> {
+        });
+
+        assertThrows(RuntimeException.class, () -> allocate(portfolio, "MSFT"));
+    }
+}
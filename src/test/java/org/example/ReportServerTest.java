@@ -0,0 +1,113 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReportServerTest {
+    private static final String CSV = "Transaction date,Transaction type,Investment name,Shares,Amount\r\n" +
+            "Jun-08-2023,NON-RESIDENT TAX DIVIDEND RECEIVED,MICROSOFT CORP,-,-$6.16\r\n" +
+            "Jun-08-2023,DIVIDEND RECEIVED,MICROSOFT CORP,-,$24.64\r\n" +
+            "May-10-2023,YOU SOLD EXERCISE,MICROSOFT CORP,-3.000,$930.00\r\n" +
+            "Feb-15-2023,CONVERSION SHARES DEPOSITED,MICROSOFT CORP,4.000,$0.00\r\n";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ReportServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new ReportServer(0, 2, 4);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private HttpURLConnection connect(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    }
+
+    private HttpURLConnection post(String path, String body) throws IOException {
+        return post(path, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private HttpURLConnection post(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = connect(path);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection;
+    }
+
+    // A zip of the given names, each holding the given content
+    private static byte[] zip(byte[] content, String... names) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (String name : names) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(content);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private JsonNode read(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return mapper.readTree(IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void servesReportsAndMetrics() throws IOException {
+        HttpURLConnection connection = post("/report?year=2023", CSV);
+        assertEquals(200, connection.getResponseCode());
+        JsonNode report = read(connection);
+        assertEquals("2023-05-10", report.get("sales").get(0).get("date").asText());
+        assertEquals(1, report.get("dividends").size());
+        assertEquals(1, report.get("foreignAssets").size());
+
+        HttpURLConnection badRequest = post("/report", CSV);
+        assertEquals(400, badRequest.getResponseCode());
+        assertEquals("Missing year", read(badRequest).get("error").asText());
+
+        JsonNode metrics = read(connect("/metrics"));
+        assertEquals(2, metrics.get("requests").asLong());
+        assertEquals(1, metrics.get("failures").asLong());
+        assertEquals(2, metrics.get("latencyMs").get("count").asLong());
+    }
+
+    @Test
+    void refusesOversizedAndDuplicateZipEntries() throws IOException {
+        HttpURLConnection zipped = post("/report?year=2023", zip(CSV.getBytes(StandardCharsets.UTF_8), "Transaction history 2023.csv"));
+        assertEquals(200, zipped.getResponseCode());
+
+        // Compresses to well under the upload limit but unzips past the bound
+        byte[] padding = new byte[40 << 20];
+        HttpURLConnection bomb = post("/report?year=2023", zip(padding, "Transaction history 2022.csv", "Transaction history 2023.csv"));
+        assertEquals(413, bomb.getResponseCode());
+
+        HttpURLConnection duplicate = post("/report?year=2023", zip(CSV.getBytes(StandardCharsets.UTF_8),
+                "Transaction history 2023.csv", "old/Transaction history 2023.csv"));
+        assertEquals(400, duplicate.getResponseCode());
+    }
+}
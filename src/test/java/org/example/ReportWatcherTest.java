@@ -0,0 +1,75 @@
+package org.example;
+
+import org.apache.commons.io.output.NullPrintStream;
+import org.example.dtos.Report;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportWatcherTest {
+    private static final String HEADER = "Transaction date,Transaction type,Investment name,Shares,Amount\r\n";
+    private static final String CSV_2022 = HEADER +
+            "Nov-15-2022,CONVERSION SHARES DEPOSITED,MICROSOFT CORP,2.000,$0.00\r\n" +
+            "Feb-15-2022,CONVERSION SHARES DEPOSITED,MICROSOFT CORP,4.000,$0.00\r\n";
+    private static final String CSV_2023 = HEADER +
+            "Jun-08-2023,NON-RESIDENT TAX DIVIDEND RECEIVED,MICROSOFT CORP,-,-$9.24\r\n" +
+            "Jun-08-2023,DIVIDEND RECEIVED,MICROSOFT CORP,-,$36.96\r\n" +
+            "May-10-2023,YOU SOLD EXERCISE,MICROSOFT CORP,-3.000,$930.00\r\n" +
+            "Feb-15-2023,CONVERSION SHARES DEPOSITED,MICROSOFT CORP,4.000,$0.00\r\n";
+    private static final String SEPTEMBER_DIVIDEND =
+            "Sep-14-2023,NON-RESIDENT TAX DIVIDEND RECEIVED,MICROSOFT CORP,-,-$10.20\r\n" +
+            "Sep-14-2023,DIVIDEND RECEIVED,MICROSOFT CORP,-,$40.80\r\n";
+
+    @TempDir
+    Path folder;
+
+    private static String print(Report report) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportPrinter.print(report, new PrintStream(out, true));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private String fullReport() throws IOException {
+        return print(new FidelityParser(2023, NullPrintStream.INSTANCE).buildReport(folder));
+    }
+
+    @Test
+    void replaysFromTheYearOfTheChange() throws IOException {
+        Path file2022 = Files.write(folder.resolve("Transaction history 2022.csv"), CSV_2022.getBytes(StandardCharsets.UTF_8));
+        Path file2023 = Files.write(folder.resolve("Transaction history 2023.csv"), CSV_2023.getBytes(StandardCharsets.UTF_8));
+        ReportWatcher watcher = new ReportWatcher(2023, folder, null, ReportWatcher.SETTLE_MILLIS);
+
+        Report first = watcher.refresh(Arrays.asList(file2022, file2023));
+        assertEquals(fullReport(), print(first));
+        assertEquals(print(first), new String(Files.readAllBytes(folder.resolve("Report-2023.txt")), StandardCharsets.UTF_8));
+        assertNull(watcher.refresh(Collections.singletonList(file2023)));
+
+        Files.write(file2023, (CSV_2023 + SEPTEMBER_DIVIDEND).getBytes(StandardCharsets.UTF_8));
+        Report second = watcher.refresh(Collections.singletonList(file2023));
+        assertEquals(fullReport(), print(second));
+        assertEquals(2, second.getDividends().size());
+
+        Files.delete(file2022);
+        assertEquals(fullReport(), print(watcher.refresh(Collections.singletonList(file2022))));
+    }
+
+    @Test
+    void findsTheFirstDifferingDate() throws IOException {
+        Path file = Files.write(folder.resolve("Transaction history 2023.csv"), CSV_2023.getBytes(StandardCharsets.UTF_8));
+        Path changed = Files.write(folder.resolve("Transaction history 2024.csv"),
+                (CSV_2023 + SEPTEMBER_DIVIDEND).getBytes(StandardCharsets.UTF_8));
+        assertNull(ReportWatcher.firstDifference(TransactionHistoryReader.read(file, 2023), TransactionHistoryReader.read(file, 2023)));
+        assertEquals("2023-09-14", ReportWatcher.firstDifference(TransactionHistoryReader.read(file, 2023),
+                TransactionHistoryReader.read(changed, 2023)).toString());
+    }
+}
@@ -1,5 +1,6 @@
 package org.example;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.example.repositories.StockPriceRepository;
 import org.junit.jupiter.api.Test;
 
@@ -15,4 +16,31 @@ class StockPriceRepositoryTest {
     void getStockPrices() throws IOException {
         assertEquals(241.73, StockPriceRepository.getStockPrice(MSFT, LocalDate.parse("2022-11-16")));
     }
+
+    @Test
+    void getPeakStockPrice() {
+        LocalDate startDate = LocalDate.parse("2022-11-01");
+        LocalDate endDate = LocalDate.parse("2022-11-30");
+        LocalDate peakDate = startDate;
+        double peak = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            double price = StockPriceRepository.getStockPrice(MSFT, date);
+            if (price > peak) {
+                peak = price;
+                peakDate = date;
+            }
+        }
+        Pair<LocalDate, Double> peakPrice = StockPriceRepository.getPeakStockPrice(MSFT, startDate, endDate);
+        assertEquals(peak, peakPrice.getRight());
+        assertEquals(peakDate, peakPrice.getLeft());
+    }
+
+    @Test
+    void getStockPricesForSortedDates() {
+        // Saturday 2022-11-19 falls back to Friday's close
+        int[] epochDays = {(int) LocalDate.parse("2022-11-16").toEpochDay(), (int) LocalDate.parse("2022-11-19").toEpochDay()};
+        double[] prices = StockPriceRepository.getStockPrices(MSFT, epochDays);
+        assertEquals(241.73, prices[0]);
+        assertEquals(StockPriceRepository.getStockPrice(MSFT, LocalDate.parse("2022-11-18")), prices[1]);
+    }
 }
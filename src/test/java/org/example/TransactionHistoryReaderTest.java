@@ -0,0 +1,39 @@
+package org.example;
+
+import org.example.dtos.Event;
+import org.example.dtos.EventType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TransactionHistoryReaderTest {
+
+    @Test
+    void parsesRowsUntilBlankLine() {
+        String csv = "\uFEFFTransaction date,Transaction type,Investment name,Shares,Amount\r\n" +
+                "Dec-14-2023,NON-RESIDENT TAX DIVIDEND RECEIVED,MICROSOFT CORP,-,-$7.48\r\n" +
+                "Dec-14-2023,REINVESTMENT REINVEST @ 1.000,FIDELITY GOVERNMENT CASH RESERVES,0.100,-$0.10\r\n" +
+                "Nov-20-2023,\"YOU SOLD EXERCISE\",\"MICROSOFT CORP, \"\"COMMON\"\"\",-7.250,$2724.55\r\n" +
+                "\r\n" +
+                "Disclaimer, not a transaction\r\n";
+        List<Event> events = TransactionHistoryReader.parse(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)), 2023);
+
+        assertEquals(2, events.size());
+        assertEquals(LocalDate.of(2023, 12, 14), events.get(0).getDate());
+        assertEquals(EventType.TAX, events.get(0).getType());
+        assertEquals(7.48, events.get(0).getAmount());
+        assertEquals(0, events.get(0).getShares());
+        assertEquals("MSFT", events.get(0).getTicker());
+        assertEquals(EventType.SELL, events.get(1).getType());
+        assertEquals(2724.55, events.get(1).getAmount());
+        assertEquals(-7.25, events.get(1).getShares());
+        assertEquals(2023, events.get(1).getYear());
+        assertNull(events.get(1).getTicker());
+    }
+}
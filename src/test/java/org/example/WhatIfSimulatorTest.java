@@ -0,0 +1,79 @@
+package org.example;
+
+import org.example.dtos.FixedPoint;
+import org.example.dtos.Lot;
+import org.example.dtos.LotSelection;
+import org.example.dtos.SaleScenario;
+import org.example.dtos.ScenarioOutcome;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WhatIfSimulatorTest {
+    private static final LocalDate SALE_DATE = LocalDate.of(2023, 5, 10);
+    private static final long SALE_DAY = SALE_DATE.toEpochDay();
+    private static final List<Lot> LOTS = Arrays.asList(
+            new Lot("MSFT", LocalDate.of(2022, 2, 15), 4 * FixedPoint.MICROS_PER_SHARE, 20000, 0, true),
+            new Lot("MSFT", LocalDate.of(2022, 11, 15), 2 * FixedPoint.MICROS_PER_SHARE, 25000, 0, true));
+
+    @Test
+    void forksLotsPerSelection() {
+        LotSnapshot lots = LotSnapshot.of("MSFT", LOTS);
+        double[] fifo = new double[2];
+        LotSnapshot afterFifo = lots.sell(5, SALE_DAY, lots.getFifoOrder(), fifo);
+        double[] highestCost = new double[2];
+        lots.sell(5, SALE_DAY, lots.getHighestCostFirstOrder(), highestCost);
+        double[] specific = new double[2];
+        lots.sell(1, SALE_DAY, lots.getSpecificLotOrder(1), specific);
+
+        assertArrayEquals(new double[]{4, 1}, fifo);
+        assertArrayEquals(new double[]{3, 2}, highestCost);
+        assertArrayEquals(new double[]{0, 1}, specific);
+        assertEquals(1, afterFifo.getTotalShares());
+        assertEquals(6, lots.getTotalShares());
+        assertThrows(IllegalArgumentException.class, () -> lots.sell(7, SALE_DAY, lots.getFifoOrder(), new double[2]));
+    }
+
+    @Test
+    void ranksByTax() {
+        WhatIfSimulator simulator = new WhatIfSimulator(2023, LOTS);
+        List<SaleScenario> scenarios = Arrays.asList(
+                new SaleScenario("MSFT", SALE_DATE, 5, LotSelection.FIFO, -1),
+                new SaleScenario("MSFT", SALE_DATE, 5, LotSelection.HIGHEST_COST_FIRST, -1));
+        List<ScenarioOutcome> outcomes = simulator.rank(scenarios, ForkJoinPool.commonPool());
+
+        assertEquals(LotSelection.HIGHEST_COST_FIRST, outcomes.get(0).getScenario().getLotSelection());
+        assertTrue(outcomes.get(0).getCostOfAcquisitionWithIndexation() > outcomes.get(1).getCostOfAcquisitionWithIndexation());
+        assertEquals(outcomes.get(0).getSaleValue(), outcomes.get(1).getSaleValue());
+        assertEquals(outcomes.get(1).getCapitalGain() * WhatIfSimulator.LTCG_RATE, outcomes.get(1).getTax(), 1e-6);
+    }
+
+    @Test
+    void sellsOnlyLotsAcquiredByTheSaleDate() {
+        List<Lot> lots = Arrays.asList(LOTS.get(0), LOTS.get(1),
+                new Lot("MSFT", LocalDate.of(2024, 2, 15), 3 * FixedPoint.MICROS_PER_SHARE, 40000, 0, true));
+        LotSnapshot snapshot = LotSnapshot.of("MSFT", lots);
+        double[] highestCost = new double[3];
+        snapshot.sell(2, SALE_DAY, snapshot.getHighestCostFirstOrder(), highestCost);
+        assertArrayEquals(new double[]{0, 2, 0}, highestCost);
+        assertEquals(6, snapshot.getSharesHeldOn(SALE_DAY));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.sell(7, SALE_DAY, snapshot.getFifoOrder(), new double[3]));
+
+        WhatIfSimulator simulator = new WhatIfSimulator(2023, lots);
+        List<SaleScenario> scenarios = simulator.getScenarios("MSFT", 100);
+        for (SaleScenario scenario : scenarios) {
+            if (scenario.getDate().isBefore(LocalDate.of(2024, 2, 15))) {
+                assertTrue(scenario.getNumShares() <= 6, scenario.toString());
+                assertNotEquals(2, scenario.getSpecificLot(), scenario.toString());
+            }
+        }
+        assertTrue(scenarios.stream().anyMatch(scenario -> scenario.getSpecificLot() == 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> simulator.evaluate(new SaleScenario("MSFT", SALE_DATE, 1, LotSelection.SPECIFIC_LOT, 2)));
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.dtos;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+
+    @Test
+    void scalesLikeBigDecimal() {
+        long[] values = {-7, -5, -1, 0, 1, 5, 7, 25, 35, 1_234_567};
+        for (RoundingMode mode : RoundingMode.values()) {
+            if (mode == RoundingMode.UNNECESSARY)
+                continue;
+            for (long value : values) {
+                long expected = BigDecimal.valueOf(value * 3).divide(BigDecimal.valueOf(10), 0, mode).longValueExact();
+                assertEquals(expected, FixedPoint.scale(value, 3, 10, mode), value + " " + mode);
+            }
+        }
+        assertThrows(ArithmeticException.class, () -> FixedPoint.scale(1, 1, 3, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void takesRupeesFromPaiseNotFromDrift() {
+        // A price times a share count that is a whole number of rupees, one ulp short
+        assertEquals(218234, FixedPoint.toRupees(218233.99999999997, FixedPoint.REPORTED_RUPEES));
+        assertEquals(218233, FixedPoint.toRupees(218233.994, FixedPoint.REPORTED_RUPEES));
+        assertEquals(2123000, FixedPoint.toMicroShares(2.123));
+        assertEquals(2.123, FixedPoint.toShares(2123000));
+    }
+
+    @Test
+    void lotSoldInFractionsCloses() {
+        Lot lot = new Lot("MSFT", LocalDate.of(2022, 2, 15), FixedPoint.toMicroShares(0.3), 20000, 600, true);
+        lot.decrementShares(FixedPoint.toMicroShares(0.1), true);
+        lot.decrementShares(FixedPoint.toMicroShares(0.2), true);
+        assertFalse(lot.isActive());
+        assertFalse(lot.isActiveForCalendarYear());
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void dumpsPhasesAndCounters() throws IOException {
+        Counter counter = Metrics.counter("test.items");
+        long before = counter.get();
+        try (Phase phase = Metrics.phase("test.phase")) {
+            counter.add(3);
+            counter.increment();
+        }
+        try (Phase phase = Metrics.phase("test.phase")) {
+            counter.increment();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Metrics.dump(out);
+        JsonNode metrics = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(before + 5, metrics.get("counters").get("test.items").asLong());
+        JsonNode phase = metrics.get("phases").get("test.phase");
+        assertTrue(phase.get("count").asLong() >= 2);
+        assertTrue(phase.get("wallMs").asDouble() >= 0);
+    }
+}
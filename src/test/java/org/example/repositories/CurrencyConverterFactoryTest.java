@@ -0,0 +1,35 @@
+package org.example.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.MissingResourceException;
+
+import static org.example.dtos.Currency.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CurrencyConverterFactoryTest {
+
+    @Test
+    void derivesMissingPairsThroughINR(@TempDir Path folder) throws IOException {
+        Path rates = Files.createDirectories(folder.resolve("currency_conversions")).resolve("EURINR-TTBR.csv");
+        Files.write(rates, ("DATE,PDF FILE,TT BUY\n2020-01-06 09:00,,80.00\n").getBytes(StandardCharsets.UTF_8));
+        System.setProperty(ReferenceData.OVERRIDE_FOLDER_PROPERTY, folder.toString());
+        try {
+            // Rates loaded from the folder stay with this version, not the current one
+            ReferenceData data = ReferenceData.unpublished();
+            LocalDate date = LocalDate.parse("2020-01-06");
+            assertEquals(80.00 / 71.65, data.getCurrencyConverter(EUR, USD).convert(date, 1), 1e-12);
+            assertEquals(1 / 71.65, data.getCurrencyConverter(INR, USD).convert(date, 1), 1e-12);
+            assertThrows(MissingResourceException.class, () -> data.getCurrencyConverter(GBP, USD));
+        } finally {
+            System.clearProperty(ReferenceData.OVERRIDE_FOLDER_PROPERTY);
+        }
+    }
+}
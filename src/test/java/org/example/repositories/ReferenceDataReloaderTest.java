@@ -0,0 +1,51 @@
+package org.example.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.MissingResourceException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceDataReloaderTest {
+
+    @Test
+    void publishesANewVersionWhenAnOverrideChanges(@TempDir Path folder) throws IOException {
+        // The versions published here must not outlive the test
+        ReferenceData previous = ReferenceData.current();
+        System.setProperty(ReferenceData.OVERRIDE_FOLDER_PROPERTY, folder.toString());
+        try (ReferenceDataReloader reloader = ReferenceDataReloader.start(Long.MAX_VALUE)) {
+            ReferenceData before = ReferenceData.current();
+            LocalDate date = LocalDate.parse("2022-11-16");
+            double price = before.getStockPrice("MSFT", date);
+            assertSame(before, reloader.reload());
+
+            // Next year's index added to a copy of the indices
+            Path indices = folder.resolve(CostInflationRepository.RESOURCE);
+            try (InputStream in = CostInflationRepository.class.getResourceAsStream("/" + CostInflationRepository.RESOURCE)) {
+                Files.copy(in, indices);
+            }
+            Files.write(indices, "2099-00,999\n".getBytes(), StandardOpenOption.APPEND);
+            ReferenceData after = reloader.reload();
+
+            assertEquals(before.getVersion() + 1, after.getVersion());
+            assertSame(after, ReferenceData.current());
+            assertEquals(999, after.getCostInflation(2099));
+            // The version held by a run in flight is unchanged
+            assertThrows(MissingResourceException.class, () -> before.getCostInflation(2099));
+            assertEquals(price, after.getStockPrice("MSFT", date));
+
+            Files.delete(indices);
+            assertThrows(MissingResourceException.class, () -> reloader.reload().getCostInflation(2099));
+        } finally {
+            System.clearProperty(ReferenceData.OVERRIDE_FOLDER_PROPERTY);
+            ReferenceData.restore(previous);
+        }
+    }
+}
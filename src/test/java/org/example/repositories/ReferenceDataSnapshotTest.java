@@ -0,0 +1,83 @@
+package org.example.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceDataSnapshotTest {
+
+    private static Path resourceFolder() throws URISyntaxException {
+        return Paths.get(ReferenceDataSnapshotTest.class.getResource("/" + CostInflationRepository.RESOURCE).toURI()).getParent();
+    }
+
+    private static ReferenceDataSnapshot compile(Path resourceFolder, Path snapshot) throws IOException {
+        SnapshotCompiler.compile(resourceFolder, snapshot);
+        return ReferenceDataSnapshot.open(ByteBuffer.wrap(Files.readAllBytes(snapshot)));
+    }
+
+    @Test
+    void matchesTextSources(@TempDir Path temp) throws Exception {
+        ReferenceDataSnapshot snapshot = compile(resourceFolder(), temp.resolve(ReferenceDataSnapshot.RESOURCE));
+
+        String prices = StockPriceRepository.getResource("MSFT");
+        StockPriceSeries expectedSeries;
+        try (InputStream in = getClass().getResourceAsStream("/" + prices)) {
+            expectedSeries = StockPriceRepository.parseTSV(in);
+        }
+        StockPriceSeries series = snapshot.readStockPrices(prices);
+        assertArrayEquals(expectedSeries.getEpochDays(), series.getEpochDays());
+        assertArrayEquals(expectedSeries.getCloses(), series.getCloses());
+
+        String rates = CurrencyConverterFactory.getResource("USDINR");
+        ConversionRateTable expectedTable;
+        try (InputStream in = getClass().getResourceAsStream("/" + rates)) {
+            expectedTable = CurrencyConverterFactory.parseTTBR(in);
+        }
+        ConversionRateTable table = snapshot.readConversionRates(rates);
+        assertEquals(expectedTable.getFirstEpochDay(), table.getFirstEpochDay());
+        assertArrayEquals(expectedTable.getRates(), table.getRates());
+        LocalDate date = LocalDate.of(2023, 5, 15);
+        assertEquals(expectedTable.getIncomeRate(date), table.getIncomeRate(date));
+
+        try (InputStream in = getClass().getResourceAsStream("/" + CostInflationRepository.RESOURCE)) {
+            assertEquals(CostInflationRepository.parseCSV(in), snapshot.readCostInflation(CostInflationRepository.RESOURCE));
+        }
+    }
+
+    @Test
+    void ignoresSectionsOfChangedSources(@TempDir Path temp) throws Exception {
+        // Compile from a copy where the prices differ from the text source on the classpath
+        Path resourceFolder = resourceFolder();
+        String prices = StockPriceRepository.getResource("MSFT");
+        Path copy = temp.resolve("resources");
+        Files.createDirectories(copy.resolve(prices).getParent());
+        List<String> lines = Files.readAllLines(resourceFolder.resolve(prices));
+        Files.write(copy.resolve(prices), lines.subList(0, lines.size() / 2));
+        Files.copy(resourceFolder.resolve(CostInflationRepository.RESOURCE), copy.resolve(CostInflationRepository.RESOURCE));
+
+        ReferenceDataSnapshot snapshot = compile(copy, temp.resolve(ReferenceDataSnapshot.RESOURCE));
+        assertNull(snapshot.readStockPrices(prices));
+        assertNotNull(snapshot.readCostInflation(CostInflationRepository.RESOURCE));
+        assertNull(snapshot.readConversionRates(CurrencyConverterFactory.getResource("USDINR")));
+    }
+
+    @Test
+    void rejectsOtherFormats() {
+        byte[] bytes = new byte[64];
+        Arrays.fill(bytes, (byte) 1);
+        assertNull(ReferenceDataSnapshot.open(ByteBuffer.wrap(bytes)));
+        assertNull(ReferenceDataSnapshot.open(ByteBuffer.wrap(new byte[3])));
+    }
+}
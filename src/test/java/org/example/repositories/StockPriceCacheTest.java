@@ -0,0 +1,80 @@
+package org.example.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockPriceCacheTest {
+
+    private static StockPriceSeries series(int size) {
+        int[] epochDays = new int[size];
+        double[] closes = new double[size];
+        for (int i = 0; i < size; i++) {
+            epochDays[i] = 19000 + i;
+            closes[i] = i;
+        }
+        return StockPriceSeries.of(epochDays, closes, size);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSeries() {
+        long weight = series(100).getWeight();
+        AtomicInteger loads = new AtomicInteger();
+        StockPriceCache cache = new StockPriceCache(ticker -> {
+            loads.incrementAndGet();
+            return ticker.equals("NONE") ? null : series(100);
+        }, 2 * weight);
+
+        cache.get("A");
+        cache.get("B");
+        cache.get("A");
+        cache.get("C");
+        assertEquals(2, cache.size());
+        assertEquals(2 * weight, cache.getWeight());
+
+        // B was the least recently used so A is still cached
+        cache.get("A");
+        assertEquals(3, loads.get());
+        cache.get("B");
+        assertEquals(4, loads.get());
+
+        assertNull(cache.get("NONE"));
+        assertNull(cache.get("NONE"));
+        assertEquals(6, loads.get());
+    }
+
+    @Test
+    void loadsTickerOnceForConcurrentCallers() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        StockPriceCache cache = new StockPriceCache(ticker -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return series(10);
+        }, Long.MAX_VALUE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<StockPriceSeries>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                futures.add(executor.submit(() -> cache.get("A")));
+            Thread.sleep(50);
+            release.countDown();
+            StockPriceSeries first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<StockPriceSeries> future : futures)
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+    }
+}